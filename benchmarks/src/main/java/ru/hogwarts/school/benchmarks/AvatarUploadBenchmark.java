@@ -0,0 +1,61 @@
+package ru.hogwarts.school.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end AvatarService.uploadAvatar: hashing, disk write and DB blob write.
+ * The duplicate case exercises the content-addressed dedup path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvatarUploadBenchmark {
+    @Param({"262144"})
+    private int fileSize;
+
+    private ConfigurableApplicationContext context;
+    private AvatarService avatarService;
+    private Long studentId;
+    private byte[] content;
+    private long counter;
+
+    @Setup
+    public void setUp() {
+        context = SchoolContext.start();
+        avatarService = context.getBean(AvatarService.class);
+        studentId = context.getBean(StudentService.class).create(new Student(null, "Harry", 11)).getId();
+        content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Avatar uploadDuplicate() throws IOException {
+        return avatarService.uploadAvatar(studentId, new MockMultipartFile("avatar", "avatar.jpg", "image/jpeg", content));
+    }
+
+    @Benchmark
+    public Avatar uploadUnique() throws IOException {
+        byte[] unique = content.clone();
+        ByteBuffer.wrap(unique).putLong(++counter);
+        return avatarService.uploadAvatar(studentId, new MockMultipartFile("avatar", "avatar.jpg", "image/jpeg", unique));
+    }
+}
@@ -0,0 +1,24 @@
+package ru.hogwarts.school.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JSON for trend comparison.
+ * Arguments: [result file] [benchmark regexp].
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String result = args.length > 0 ? args[0] : "target/jmh-result.json";
+        String include = args.length > 1 ? args[1] : "ru\\.hogwarts\\.school\\..*Benchmark";
+        new Runner(new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,76 @@
+package ru.hogwarts.school.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+    @Param({"50", "500"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper cborMapper;
+    private ObjectMapper smileMapper;
+    private List<Student> students;
+    private List<StudentDto> studentDtos;
+    private List<Faculty> faculties;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+        smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+        faculties = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            faculties.add(new Faculty(i + 1, "Faculty " + i, "color " + i));
+        }
+        students = new ArrayList<>(size);
+        studentDtos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Faculty faculty = faculties.get(i % faculties.size());
+            Student student = new Student((long) i + 1, "Student number " + i, 11 + i % 7);
+            student.setFaculty(faculty);
+            students.add(student);
+            studentDtos.add(new StudentDto(student.getId(), student.getName(), student.getAge(), faculty.getId(), 0L));
+        }
+    }
+
+    @Benchmark
+    public byte[] studentEntities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(students);
+    }
+
+    @Benchmark
+    public byte[] studentDtos() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(studentDtos);
+    }
+
+    @Benchmark
+    public byte[] studentDtosCbor() throws JsonProcessingException {
+        return cborMapper.writeValueAsBytes(studentDtos);
+    }
+
+    @Benchmark
+    public byte[] studentDtosSmile() throws JsonProcessingException {
+        return smileMapper.writeValueAsBytes(studentDtos);
+    }
+
+    @Benchmark
+    public byte[] faculties() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(faculties);
+    }
+}
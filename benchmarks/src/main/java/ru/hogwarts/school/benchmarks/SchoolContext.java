@@ -0,0 +1,22 @@
+package ru.hogwarts.school.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.hogwarts.school.SchoolApplication;
+
+final class SchoolContext {
+
+    private SchoolContext() {
+    }
+
+    /**
+     * Starts the application without a web server against in-memory H2 (see application-benchmark.properties).
+     */
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(SchoolApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("benchmark")
+                .run();
+    }
+}
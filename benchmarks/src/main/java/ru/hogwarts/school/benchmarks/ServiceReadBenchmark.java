@@ -0,0 +1,111 @@
+package ru.hogwarts.school.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.hogwarts.school.dto.BatchItemResult;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repasitory.StudentRepository;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service read paths against the full application context on in-memory H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceReadBenchmark {
+    private static final int STUDENTS = 20_000;
+    private static final int FACULTIES = 4;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+    private FacultyService facultyService;
+    private StudentRepository studentRepository;
+    private List<Long> studentIds;
+    private List<Long> facultyIds;
+
+    @Setup
+    public void setUp() {
+        context = SchoolContext.start();
+        studentService = context.getBean(StudentService.class);
+        facultyService = context.getBean(FacultyService.class);
+        studentRepository = context.getBean(StudentRepository.class);
+
+        List<Faculty> faculties = new ArrayList<>();
+        facultyIds = new ArrayList<>();
+        for (int i = 0; i < FACULTIES; i++) {
+            Faculty faculty = facultyService.create(new Faculty(0, "Faculty " + i, "color " + i));
+            faculties.add(faculty);
+            facultyIds.add(faculty.getId());
+        }
+        List<Student> students = new ArrayList<>(STUDENTS);
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = new Student(null, "Student number " + i, 11 + i % 7);
+            student.setFaculty(faculties.get(i % FACULTIES));
+            students.add(student);
+        }
+        studentIds = studentService.createAll(students).stream().map(BatchItemResult::id).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StudentDto readCached() {
+        return studentService.read(randomStudentId());
+    }
+
+    @Benchmark
+    public Student readFromDatabase() {
+        return studentRepository.findById(randomStudentId()).orElseThrow();
+    }
+
+    @Benchmark
+    public List<StudentDto> filterByAgeKeyset() {
+        return studentService.filterByAge(11 + ThreadLocalRandom.current().nextInt(7), randomStudentId(), 50);
+    }
+
+    @Benchmark
+    public List<StudentDto> ageBetweenKeyset() {
+        return studentService.findAllByAgeBetween(12, 15, 12 + ThreadLocalRandom.current().nextInt(4), randomStudentId(), 50);
+    }
+
+    @Benchmark
+    public List<StudentDto> ageBetweenOffset() {
+        return studentService.findAllByAgeBetween(12, 15, ThreadLocalRandom.current().nextInt(100), 50);
+    }
+
+    @Benchmark
+    public List<StudentDto> facultyStudents() {
+        Long facultyId = facultyIds.get(ThreadLocalRandom.current().nextInt(FACULTIES));
+        return facultyService.getStudents(facultyId, randomStudentId(), 50);
+    }
+
+    @Benchmark
+    public FacultyDto studentFaculty() {
+        return studentService.getFacultyStudent(randomStudentId());
+    }
+
+    @Benchmark
+    public List<StudentDto> search() {
+        return studentService.search("number 1", 20);
+    }
+
+    private Long randomStudentId() {
+        return studentIds.get(ThreadLocalRandom.current().nextInt(studentIds.size()));
+    }
+}
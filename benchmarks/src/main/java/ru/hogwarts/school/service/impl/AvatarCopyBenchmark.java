@@ -0,0 +1,84 @@
+package ru.hogwarts.school.service.impl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * The copy behind AvatarStorage.store, {@link AvatarFiles#copy}, against the original buffered stream copy and a
+ * FileChannel.transferTo reference. It lives in the package of {@code AvatarFiles} to call the package-private
+ * code itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvatarCopyBenchmark {
+    @Param({"262144", "4194304"})
+    private int fileSize;
+
+    private Path dir;
+    private Path source;
+    private Path target;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("avatar-copy");
+        source = dir.resolve("source.jpg");
+        target = dir.resolve("target.jpg");
+        byte[] content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        Files.write(source, content);
+        Files.createFile(target);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long bufferedStreamCopy() throws IOException {
+        try (
+                InputStream is = Files.newInputStream(source);
+                OutputStream os = Files.newOutputStream(target, CREATE, TRUNCATE_EXISTING, WRITE);
+                BufferedInputStream bis = new BufferedInputStream(is);
+                BufferedOutputStream bos = new BufferedOutputStream(os)
+        ) {
+            return bis.transferTo(bos);
+        }
+    }
+
+    @Benchmark
+    public String avatarFilesCopy() throws IOException {
+        try (InputStream is = Files.newInputStream(source)) {
+            return AvatarFiles.copy(is, target, false).hash();
+        }
+    }
+
+    @Benchmark
+    public long channelTransferTo() throws IOException {
+        try (
+                FileChannel in = FileChannel.open(source, READ);
+                FileChannel out = FileChannel.open(target, CREATE, TRUNCATE_EXISTING, WRITE)
+        ) {
+            long position = 0;
+            long size = in.size();
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            return position;
+        }
+    }
+}
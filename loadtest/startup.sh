@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Compares startup time and resident memory of the plain jar, the AOT-processed jar, AOT + CDS archive
+# and the native image. Needs a running PostgreSQL with a migrated schema (see application.properties)
+# and the artifacts built beforehand:
+#   ./mvnw -Pcds package -DskipTests      -> target/cds/ (AOT jar + application.jsa)
+#   ./mvnw -Pnative native:compile        -> target/school (GraalVM only, skipped when missing)
+#
+#   loadtest/startup.sh [runs]
+set -euo pipefail
+
+RUNS=${1:-5}
+CDS_JAR=$(ls target/cds/school-*.jar | head -n 1)
+URL=http://localhost:8080
+
+measure() {
+  local mode=$1; shift
+  local log=target/startup-$mode.log
+  local start=$(date +%s%N)
+  SCHEMA_MIGRATE=false "$@" > "$log" 2>&1 &
+  local pid=$!
+  until curl -sf "$URL/actuator/health" > /dev/null; do sleep 0.05; done
+  local ready=$(( ($(date +%s%N) - start) / 1000000 ))
+  local rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+  local started=$(grep -o 'Started SchoolApplication in [0-9.]* seconds' "$log" | grep -o '[0-9.]*' | head -n 1)
+  kill "$pid"; wait "$pid" 2>/dev/null || true
+  printf '%-6s first response %6d ms   started in %6s s   rss %7d KB\n' "$mode" "$ready" "$started" "$rss"
+}
+
+for i in $(seq "$RUNS"); do
+  measure jar    java -jar "$CDS_JAR"
+  measure aot    java -Dspring.aot.enabled=true -jar "$CDS_JAR"
+  measure cds    java -XX:SharedArchiveFile=target/cds/application.jsa -Dspring.aot.enabled=true -jar "$CDS_JAR"
+  if [ -x target/school ]; then
+    measure native target/school
+  fi
+done
@@ -0,0 +1,44 @@
+#!/usr/bin/env bash
+# Compares request handling on virtual threads against the classic platform-thread pool.
+# Needs a running PostgreSQL (see application.properties), a built jar (./mvnw package -DskipTests)
+# and the `hey` load generator on PATH. The rate limiter is switched off, otherwise a single client mostly
+# measures 429/503 rejections. No results have been recorded yet: record the output of both modes before
+# drawing conclusions from the virtual-threads default.
+#
+#   loadtest/virtual-threads.sh [student-id] [image]
+set -euo pipefail
+
+STUDENT_ID=${1:-1}
+IMAGE=${2:-avatars/2.jpeg}
+JAR=$(ls target/school-*.jar | grep -v -- -plain.jar | head -n 1)
+URL=http://localhost:8080
+REQUESTS=${REQUESTS:-5000}
+CONCURRENCY=${CONCURRENCY:-400}
+
+run() {
+  local mode=$1
+  echo "=== virtual threads: $mode"
+  VIRTUAL_THREADS_ENABLED=$mode java -jar "$JAR" --server.tomcat.threads.max=200 \
+      --avatars.rate-limit.enabled=false > "target/loadtest-$mode.log" 2>&1 &
+  local pid=$!
+  trap "kill $pid 2>/dev/null || true" RETURN
+  until curl -sf "$URL/actuator/health" > /dev/null; do sleep 1; done
+
+  echo "--- avatar upload"
+  hey -n "$REQUESTS" -c "$CONCURRENCY" -m POST -T "multipart/form-data; boundary=loadtest" \
+      -D <(printf -- '--loadtest\r\nContent-Disposition: form-data; name="avatar"; filename="%s"\r\nContent-Type: image/jpeg\r\n\r\n' "$(basename "$IMAGE")"; \
+           cat "$IMAGE"; printf -- '\r\n--loadtest--\r\n') \
+      "$URL/avatars/$STUDENT_ID/avatar" | sed -n '/Summary/,/Latency distribution/p;/Latency distribution/,/Details/p'
+
+  echo "--- student reads while uploads are running"
+  hey -n "$REQUESTS" -c "$CONCURRENCY" -m POST -T "multipart/form-data; boundary=loadtest" \
+      -D <(printf -- '--loadtest\r\nContent-Disposition: form-data; name="avatar"; filename="%s"\r\nContent-Type: image/jpeg\r\n\r\n' "$(basename "$IMAGE")"; \
+           cat "$IMAGE"; printf -- '\r\n--loadtest--\r\n') \
+      "$URL/avatars/$STUDENT_ID/avatar" > /dev/null &
+  local uploads=$!
+  hey -n "$REQUESTS" -c "$CONCURRENCY" "$URL/students/$STUDENT_ID" | sed -n '/Summary/,/Details/p'
+  wait "$uploads" || true
+}
+
+run false
+run true
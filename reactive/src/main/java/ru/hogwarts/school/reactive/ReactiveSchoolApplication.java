@@ -0,0 +1,13 @@
+package ru.hogwarts.school.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ReactiveSchoolApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveSchoolApplication.class, args);
+	}
+
+}
@@ -0,0 +1,57 @@
+package ru.hogwarts.school.reactive.handler;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.hogwarts.school.reactive.model.Faculty;
+import ru.hogwarts.school.reactive.repository.ReactiveFacultyRepository;
+import ru.hogwarts.school.reactive.repository.ReactiveStudentRepository;
+
+@Component
+public class FacultyHandler {
+    private final ReactiveFacultyRepository facultyRepository;
+    private final ReactiveStudentRepository studentRepository;
+
+    public FacultyHandler(ReactiveFacultyRepository facultyRepository, ReactiveStudentRepository studentRepository) {
+        this.facultyRepository = facultyRepository;
+        this.studentRepository = studentRepository;
+    }
+
+    public Mono<ServerResponse> read(ServerRequest request) {
+        return facultyRepository.findById(id(request))
+                .flatMap(faculty -> ServerResponse.ok().bodyValue(faculty))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> filterByColor(ServerRequest request) {
+        return list(request, facultyRepository.findAllByColor(request.queryParam("color").orElseThrow()));
+    }
+
+    public Mono<ServerResponse> findByColorOrNameIgnoreCase(ServerRequest request) {
+        return list(request, facultyRepository.findByColorOrNameIgnoreCase(
+                request.queryParam("name").orElse(null), request.queryParam("color").orElse(null)));
+    }
+
+    public Mono<ServerResponse> getStudents(ServerRequest request) {
+        long id = id(request);
+        long after = request.queryParam("after").map(Long::parseLong).orElse(0L);
+        return facultyRepository.existsById(id)
+                .flatMap(exists -> exists
+                        ? StudentHandler.list(request,
+                                studentRepository.findAllByFacultyId(id, after, Pagination.limit(request)))
+                        : ServerResponse.notFound().build());
+    }
+
+    private static Mono<ServerResponse> list(ServerRequest request, Flux<Faculty> faculties) {
+        return ServerResponse.ok()
+                .contentType(Pagination.streaming(request) ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(faculties, Faculty.class);
+    }
+
+    private static long id(ServerRequest request) {
+        return Long.parseLong(request.pathVariable("id"));
+    }
+}
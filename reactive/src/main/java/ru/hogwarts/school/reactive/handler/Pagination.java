@@ -0,0 +1,26 @@
+package ru.hogwarts.school.reactive.handler;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+final class Pagination {
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+
+    private Pagination() {
+    }
+
+    static int limit(ServerRequest request) {
+        int limit = request.queryParam("limit").map(Integer::parseInt).orElse(DEFAULT_PAGE_SIZE);
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Lists are written element by element as NDJSON when the client asks for it, otherwise as a JSON array.
+     */
+    static boolean streaming(ServerRequest request) {
+        return request.headers().accept().stream()
+                .anyMatch(mediaType -> mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                        && !mediaType.isWildcardType());
+    }
+}
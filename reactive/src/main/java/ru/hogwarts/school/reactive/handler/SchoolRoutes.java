@@ -0,0 +1,43 @@
+package ru.hogwarts.school.reactive.handler;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Same read routes as the servlet StudentController and FacultyController. Writes are left to the servlet
+ * application, which checks versions, records outbox events and evicts its caches and name index. Unlike the
+ * servlet controllers, an unknown student or faculty is a 404 rather than an empty 200, and so is a non-numeric
+ * id or a list request without the query parameters its route needs.
+ */
+@Configuration
+public class SchoolRoutes {
+
+    @Bean
+    RouterFunction<ServerResponse> studentRoutes(StudentHandler handler) {
+        return route()
+                .path("/students", builder -> builder
+                        .GET("", queryParam("age", age -> true), handler::filterByAge)
+                        .GET("/betweenByAge", queryParam("fromAge", fromAge -> true)
+                                .and(queryParam("toAge", toAge -> true)), handler::findAllByAgeBetween)
+                        .GET("/{id:\\d+}/faculty", handler::getFacultyStudent)
+                        .GET("/{id:\\d+}", handler::read))
+                .build();
+    }
+
+    @Bean
+    RouterFunction<ServerResponse> facultyRoutes(FacultyHandler handler) {
+        return route()
+                .path("/faculties", builder -> builder
+                        .GET("", queryParam("color", color -> true), handler::filterByColor)
+                        .GET("/byNameOrColor", queryParam("name", name -> true)
+                                .or(queryParam("color", color -> true)), handler::findByColorOrNameIgnoreCase)
+                        .GET("/{id:\\d+}/students", handler::getStudents)
+                        .GET("/{id:\\d+}", handler::read))
+                .build();
+    }
+}
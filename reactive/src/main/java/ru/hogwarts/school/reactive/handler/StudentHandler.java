@@ -0,0 +1,73 @@
+package ru.hogwarts.school.reactive.handler;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.hogwarts.school.reactive.model.Faculty;
+import ru.hogwarts.school.reactive.model.Student;
+import ru.hogwarts.school.reactive.repository.ReactiveFacultyRepository;
+import ru.hogwarts.school.reactive.repository.ReactiveStudentRepository;
+
+import java.util.Optional;
+
+@Component
+public class StudentHandler {
+    private final ReactiveStudentRepository studentRepository;
+    private final ReactiveFacultyRepository facultyRepository;
+
+    public StudentHandler(ReactiveStudentRepository studentRepository, ReactiveFacultyRepository facultyRepository) {
+        this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+    }
+
+    public Mono<ServerResponse> read(ServerRequest request) {
+        return studentRepository.findById(id(request))
+                .flatMap(student -> ServerResponse.ok().bodyValue(student))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> filterByAge(ServerRequest request) {
+        int age = Integer.parseInt(request.queryParam("age").orElseThrow());
+        return list(request, studentRepository.findAllByAge(age, after(request), Pagination.limit(request)));
+    }
+
+    public Mono<ServerResponse> findAllByAgeBetween(ServerRequest request) {
+        int fromAge = Integer.parseInt(request.queryParam("fromAge").orElseThrow());
+        int toAge = Integer.parseInt(request.queryParam("toAge").orElseThrow());
+        Optional<String> afterAge = request.queryParam("afterAge");
+        Optional<String> after = request.queryParam("after");
+        if (afterAge.isPresent() != after.isPresent()) {
+            return ServerResponse.badRequest().bodyValue("afterAge and after must be given together");
+        }
+        Flux<Student> students = after.isPresent()
+                ? studentRepository.findAllByAgeBetweenAfter(fromAge, toAge, Integer.parseInt(afterAge.get()),
+                        Long.parseLong(after.get()), Pagination.limit(request))
+                : studentRepository.findAllByAgeBetween(fromAge, toAge, Pagination.limit(request));
+        return list(request, students);
+    }
+
+    public Mono<ServerResponse> getFacultyStudent(ServerRequest request) {
+        return studentRepository.findById(id(request))
+                .flatMap(student -> student.facultyId() == null ? Mono.<Faculty>empty()
+                        : facultyRepository.findById(student.facultyId()))
+                .flatMap(faculty -> ServerResponse.ok().bodyValue(faculty))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    static Mono<ServerResponse> list(ServerRequest request, Flux<Student> students) {
+        return ServerResponse.ok()
+                .contentType(Pagination.streaming(request) ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(students, Student.class);
+    }
+
+    private static long id(ServerRequest request) {
+        return Long.parseLong(request.pathVariable("id"));
+    }
+
+    private static long after(ServerRequest request) {
+        return request.queryParam("after").map(Long::parseLong).orElse(0L);
+    }
+}
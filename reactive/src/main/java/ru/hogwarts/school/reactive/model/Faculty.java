@@ -0,0 +1,8 @@
+package ru.hogwarts.school.reactive.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("faculty")
+public record Faculty(@Id Long id, String name, String color, Long version) {
+}
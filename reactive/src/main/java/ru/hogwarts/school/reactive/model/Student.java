@@ -0,0 +1,9 @@
+package ru.hogwarts.school.reactive.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("student")
+public record Student(@Id Long id, String name, int age, @Column("faculty_id") Long facultyId, Long version) {
+}
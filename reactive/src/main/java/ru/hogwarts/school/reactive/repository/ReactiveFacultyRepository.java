@@ -0,0 +1,13 @@
+package ru.hogwarts.school.reactive.repository;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import ru.hogwarts.school.reactive.model.Faculty;
+
+public interface ReactiveFacultyRepository extends ReactiveCrudRepository<Faculty, Long> {
+    Flux<Faculty> findAllByColor(String color);
+
+    @Query("select * from faculty where lower(color) = lower(:color) or lower(name) = lower(:name)")
+    Flux<Faculty> findByColorOrNameIgnoreCase(String name, String color);
+}
@@ -0,0 +1,23 @@
+package ru.hogwarts.school.reactive.repository;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import ru.hogwarts.school.reactive.model.Student;
+
+public interface ReactiveStudentRepository extends ReactiveCrudRepository<Student, Long> {
+
+    @Query("select * from student where age = :age and id > :after order by id limit :limit")
+    Flux<Student> findAllByAge(int age, long after, int limit);
+
+    @Query("select * from student where age between :fromAge and :toAge order by age, id limit :limit")
+    Flux<Student> findAllByAgeBetween(int fromAge, int toAge, int limit);
+
+    @Query("select * from student where age between :fromAge and :toAge" +
+            " and (age, id) > (:afterAge, :after)" +
+            " order by age, id limit :limit")
+    Flux<Student> findAllByAgeBetweenAfter(int fromAge, int toAge, int afterAge, long after, int limit);
+
+    @Query("select * from student where faculty_id = :facultyId and id > :after order by id limit :limit")
+    Flux<Student> findAllByFacultyId(long facultyId, long after, int limit);
+}
@@ -0,0 +1,128 @@
+package ru.hogwarts.school.reactive.handler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.hogwarts.school.reactive.model.Faculty;
+import ru.hogwarts.school.reactive.model.Student;
+import ru.hogwarts.school.reactive.repository.ReactiveFacultyRepository;
+import ru.hogwarts.school.reactive.repository.ReactiveStudentRepository;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class FacultyRoutesTests {
+    @Autowired
+    private WebTestClient client;
+    @Autowired
+    private ReactiveStudentRepository studentRepository;
+    @Autowired
+    private ReactiveFacultyRepository facultyRepository;
+
+    private Faculty ravenclaw;
+    private Faculty hufflepuff;
+    private Student luna;
+
+    @BeforeEach
+    void setUp() {
+        ravenclaw = facultyRepository.save(new Faculty(null, "Ravenclaw", "blue", 0L)).block();
+        hufflepuff = facultyRepository.save(new Faculty(null, "Hufflepuff", "yellow", 0L)).block();
+        luna = studentRepository.save(new Student(null, "Luna", 14, ravenclaw.id(), 0L)).block();
+        studentRepository.save(new Student(null, "Cho", 15, ravenclaw.id(), 0L)).block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        studentRepository.deleteAll().block();
+        facultyRepository.deleteAll().block();
+    }
+
+    @Test
+    void readsFaculty() {
+        client.get().uri("/faculties/{id}", ravenclaw.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Ravenclaw")
+                .jsonPath("$.color").isEqualTo("blue");
+    }
+
+    @Test
+    void unknownFacultyIsNotFound() {
+        client.get().uri("/faculties/{id}", hufflepuff.id() + 100)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void filtersByColor() {
+        client.get().uri("/faculties?color=yellow")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("Hufflepuff");
+    }
+
+    @Test
+    void filterWithoutColorIsNotFound() {
+        client.get().uri("/faculties")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void findsByNameOrColorIgnoringCase() {
+        client.get().uri("/faculties/byNameOrColor?name=RAVENCLAW")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].color").isEqualTo("blue");
+        client.get().uri("/faculties/byNameOrColor?color=Yellow")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("Hufflepuff");
+    }
+
+    @Test
+    void searchWithoutNameOrColorIsNotFound() {
+        client.get().uri("/faculties/byNameOrColor")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void pagesThroughStudentsOfFaculty() {
+        client.get().uri("/faculties/{id}/students?limit=1", ravenclaw.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("Luna");
+        client.get().uri("/faculties/{id}/students?after={after}", ravenclaw.id(), luna.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("Cho");
+        client.get().uri("/faculties/{id}/students", hufflepuff.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(0);
+    }
+
+    @Test
+    void studentsOfUnknownFacultyAreNotFound() {
+        client.get().uri("/faculties/{id}/students", hufflepuff.id() + 100)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
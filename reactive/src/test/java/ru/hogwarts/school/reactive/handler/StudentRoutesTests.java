@@ -0,0 +1,135 @@
+package ru.hogwarts.school.reactive.handler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.hogwarts.school.reactive.model.Faculty;
+import ru.hogwarts.school.reactive.model.Student;
+import ru.hogwarts.school.reactive.repository.ReactiveFacultyRepository;
+import ru.hogwarts.school.reactive.repository.ReactiveStudentRepository;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class StudentRoutesTests {
+    @Autowired
+    private WebTestClient client;
+    @Autowired
+    private ReactiveStudentRepository studentRepository;
+    @Autowired
+    private ReactiveFacultyRepository facultyRepository;
+
+    private Faculty faculty;
+    private Student harry;
+    private Student ron;
+    private Student loner;
+
+    @BeforeEach
+    void setUp() {
+        faculty = facultyRepository.save(new Faculty(null, "Gryffindor", "red", 0L)).block();
+        harry = studentRepository.save(new Student(null, "Harry", 11, faculty.id(), 0L)).block();
+        ron = studentRepository.save(new Student(null, "Ron", 11, faculty.id(), 0L)).block();
+        loner = studentRepository.save(new Student(null, "Moaning Myrtle", 14, null, 0L)).block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        studentRepository.deleteAll().block();
+        facultyRepository.deleteAll().block();
+    }
+
+    @Test
+    void readsStudent() {
+        client.get().uri("/students/{id}", harry.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Harry")
+                .jsonPath("$.facultyId").isEqualTo(faculty.id());
+    }
+
+    @Test
+    void unknownStudentIsNotFound() {
+        client.get().uri("/students/{id}", loner.id() + 100)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void readsFacultyOfStudent() {
+        client.get().uri("/students/{id}/faculty", ron.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Gryffindor");
+    }
+
+    @Test
+    void studentWithoutFacultyHasNoFacultyToRead() {
+        client.get().uri("/students/{id}/faculty", loner.id())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void filtersByAgeAfterCursor() {
+        client.get().uri("/students?age=11")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].name").isEqualTo("Harry");
+        client.get().uri("/students?age=11&after={after}", harry.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("Ron");
+    }
+
+    @Test
+    void streamsFilteredStudentsAsNdjson() {
+        client.get().uri("/students?age=14")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Student.class).contains(loner).hasSize(1);
+    }
+
+    @Test
+    void filterWithoutAgeIsNotFound() {
+        client.get().uri("/students")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void pagesThroughAgeRange() {
+        client.get().uri("/students/betweenByAge?fromAge=10&toAge=14&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].name").isEqualTo("Ron");
+        client.get().uri("/students/betweenByAge?fromAge=10&toAge=14&limit=2&afterAge=11&after={after}", ron.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("Moaning Myrtle");
+    }
+
+    @Test
+    void ageRangeWithoutBoundsIsNotFound() {
+        client.get().uri("/students/betweenByAge?fromAge=10")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,14 @@
+create table if not exists faculty (
+    id bigint generated by default as identity primary key,
+    color varchar(255),
+    name varchar(255),
+    version bigint
+);
+
+create table if not exists student (
+    id bigint generated by default as identity primary key,
+    age integer not null,
+    faculty_id bigint,
+    name varchar(255),
+    version bigint
+);
@@ -2,8 +2,17 @@ package ru.hogwarts.school;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.hogwarts.school.config.SchoolRuntimeHints;
 
 @SpringBootApplication
+@EnableCaching
+@EnableAsync
+@EnableScheduling
+@ImportRuntimeHints(SchoolRuntimeHints.class)
 public class SchoolApplication {
 
 	public static void main(String[] args) {
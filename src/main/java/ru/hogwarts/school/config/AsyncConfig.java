@@ -0,0 +1,49 @@
+package ru.hogwarts.school.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Runs avatar uploads, at most {@code avatars.upload.threads} at a time. Kept apart from
+     * applicationTaskExecutor, which MVC also uses for StreamingResponseBody and avatar downloads.
+     */
+    @Bean
+    public AsyncTaskExecutor avatarUploadExecutor(
+            SimpleAsyncTaskExecutorBuilder simpleBuilder, ThreadPoolTaskExecutorBuilder poolBuilder,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${avatars.upload.threads:64}") int threads,
+            @Value("${avatars.upload.queue-capacity:1000}") int queueCapacity) {
+        if (virtualThreads) {
+            return simpleBuilder.threadNamePrefix("avatar-upload-").concurrencyLimit(threads).build();
+        }
+        return poolBuilder.threadNamePrefix("avatar-upload-")
+                .corePoolSize(threads)
+                .maxPoolSize(threads)
+                .allowCoreThreadTimeOut(true)
+                .queueCapacity(queueCapacity)
+                .build();
+    }
+
+    /**
+     * Boot backs off its own applicationTaskExecutor as soon as any Executor bean exists, so it is declared
+     * here the way the auto-configuration would build it.
+     */
+    @Lazy
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor applicationTaskExecutor(
+            SimpleAsyncTaskExecutorBuilder simpleBuilder, ThreadPoolTaskExecutorBuilder poolBuilder,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        return virtualThreads ? simpleBuilder.build() : poolBuilder.build();
+    }
+}
@@ -0,0 +1,29 @@
+package ru.hogwarts.school.config;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    /**
+     * Caffeine caches from {@code spring.cache.*}, with puts and evictions deferred until the surrounding
+     * transaction commits: a rolled-back write leaves the cache alone, and an old row cached by a read that ran
+     * before the commit is evicted right after it. {@code @Cacheable} service methods are {@code @Transactional}
+     * without {@code readOnly}, so {@link ReadOnlyRoutingDataSource} sends them to the primary: a result read
+     * from a lagging replica would stay cached until it expires.
+     */
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties) {
+        CaffeineCacheManager caffeine = new CaffeineCacheManager();
+        caffeine.setCacheSpecification(cacheProperties.getCaffeine().getSpec());
+        caffeine.setCacheNames(cacheProperties.getCacheNames());
+        return new TransactionAwareCacheManagerProxy(caffeine);
+    }
+}
@@ -0,0 +1,52 @@
+package ru.hogwarts.school.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Read replica routing, enabled by {@code school.datasource.replica.enabled}. The primary pool is built from
+ * {@code spring.datasource.*}, the replica pool from {@code school.datasource.replica.*}; both are Hikari pools
+ * sized by their {@code hikari.*} properties.
+ */
+@Configuration
+@ConditionalOnProperty(name = "school.datasource.replica.enabled", havingValue = "true")
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("school.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${school.datasource.replica.url}") String url,
+                                              @Value("${school.datasource.replica.username}") String username,
+                                              @Value("${school.datasource.replica.password}") String password) {
+        return DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        ReadOnlyRoutingDataSource routing = new ReadOnlyRoutingDataSource(primary, replica);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
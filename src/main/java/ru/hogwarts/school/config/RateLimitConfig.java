@@ -0,0 +1,35 @@
+package ru.hogwarts.school.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.filter.AvatarRateLimitFilter;
+
+@Configuration
+@ConditionalOnProperty(name = "avatars.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<AvatarRateLimitFilter> avatarRateLimitFilter(
+            MeterRegistry meterRegistry,
+            @Value("${avatars.rate-limit.client.capacity:20}") long clientCapacity,
+            @Value("${avatars.rate-limit.client.refill-per-second:5}") double clientRefillPerSecond,
+            @Value("${avatars.rate-limit.global.capacity:500}") long globalCapacity,
+            @Value("${avatars.rate-limit.global.refill-per-second:200}") double globalRefillPerSecond,
+            @Value("${avatars.rate-limit.max-concurrent-uploads:16}") int maxConcurrentUploads,
+            @Value("${avatars.rate-limit.max-concurrent-downloads:64}") int maxConcurrentDownloads,
+            @Value("${avatars.rate-limit.max-upload-bytes-in-flight:256MB}") DataSize maxUploadBytesInFlight,
+            @Value("${spring.servlet.multipart.max-request-size:10MB}") DataSize maxRequestSize) {
+        FilterRegistrationBean<AvatarRateLimitFilter> registration = new FilterRegistrationBean<>(
+                new AvatarRateLimitFilter(meterRegistry, clientCapacity, clientRefillPerSecond,
+                        globalCapacity, globalRefillPerSecond, maxConcurrentUploads, maxConcurrentDownloads,
+                        maxUploadBytesInFlight.toBytes(), maxRequestSize.toBytes()));
+        registration.addUrlPatterns("/avatars/*");
+        registration.setAsyncSupported(true);
+        return registration;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.hogwarts.school.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends connections opened inside read-only transactions to the replica and everything else to the primary.
+ * Must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the
+ * connection is looked up after the transaction has been marked read-only. Cached reads run in read-write
+ * transactions, so what stays in the caches after an eviction is read from the primary. Routes nothing until
+ * {@link #afterPropertiesSet()} has run.
+ */
+public class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource {
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private final DataSource primary;
+    private final DataSource replica;
+
+    public ReadOnlyRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        super.afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARY;
+    }
+}
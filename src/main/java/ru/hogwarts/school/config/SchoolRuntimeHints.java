@@ -0,0 +1,35 @@
+package ru.hogwarts.school.config;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import ru.hogwarts.school.dto.*;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarData;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.OutboxEvent;
+import ru.hogwarts.school.model.OutboxSequence;
+import ru.hogwarts.school.model.Student;
+
+/**
+ * Reflection hints for a native image: the entities are read by Hibernate and Jackson, and the DTOs are
+ * built by JPQL constructor expressions and serialized outside of controller return types (export, caches).
+ */
+public class SchoolRuntimeHints implements RuntimeHintsRegistrar {
+    private static final Class<?>[] ENTITIES = {Student.class, Faculty.class, Avatar.class, AvatarData.class,
+            OutboxEvent.class, OutboxSequence.class};
+    private static final Class<?>[] DTOS = {StudentDto.class, FacultyDto.class, AgeSummary.class, AgeCount.class,
+            FacultyAgeSummary.class, StudentStats.class, FacultyStats.class, BatchItemResult.class,
+            StudentPatch.class, FacultyPatch.class, AvatarPreview.class, ChangeEvent.class};
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> type : ENTITIES) {
+            hints.reflection().registerType(type, MemberCategory.values());
+        }
+        for (Class<?> type : DTOS) {
+            hints.reflection().registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.DECLARED_FIELDS);
+        }
+    }
+}
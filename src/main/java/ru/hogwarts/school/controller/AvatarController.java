@@ -1,67 +1,180 @@
 package ru.hogwarts.school.controller;
 
-import jakarta.servlet.http.HttpServletResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.dto.AvatarPreview;
 import ru.hogwarts.school.model.Avatar;
 import ru.hogwarts.school.service.AvatarService;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
 
 @RestController
 @RequestMapping("avatars")
 public class AvatarController {
+    private static final Duration CACHE_MAX_AGE = Duration.ofHours(1);
+
     public final AvatarService avatarService;
+    private final Counter uploadedBytes;
+    private final Counter servedFromDb;
+    private final Counter servedFromFile;
+    private final Counter servedPreviews;
 
-    public AvatarController(AvatarService avatarService) {
+    public AvatarController(AvatarService avatarService, MeterRegistry meterRegistry) {
         this.avatarService = avatarService;
+        this.uploadedBytes = Counter.builder("avatar.bytes.uploaded").baseUnit("bytes").register(meterRegistry);
+        this.servedFromDb = servedBytes(meterRegistry, "db");
+        this.servedFromFile = servedBytes(meterRegistry, "file");
+        this.servedPreviews = servedBytes(meterRegistry, "preview");
     }
 
 
     @PostMapping(value = "/{studentId}/avatar", consumes = MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<String> uploadAvatar(
+    public CompletableFuture<ResponseEntity<String>> uploadAvatar(
             @PathVariable Long studentId,
             @RequestParam MultipartFile avatar)
             throws IOException {
-        avatarService.uploadAvatar(studentId, avatar);
-        return ResponseEntity.ok().build();
+        return avatarService.uploadAvatarAsync(studentId, avatar)
+                .thenApply(saved -> {
+                    uploadedBytes.increment(saved.getFileSize());
+                    return ResponseEntity.ok().build();
+                });
     }
 
     @GetMapping(value = "/{id}/avatar-from-db")
-    public ResponseEntity<byte[]> downloadAvatarDb(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> downloadAvatarDb(@PathVariable Long id, WebRequest request) {
         Avatar avatar = avatarService.findAvatar(id);
+        if (notModified(request, avatar)) {
+            return null;
+        }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(avatar.getMediaType()));
-        headers.setContentLength(avatar.getData().length);
-
-        return ResponseEntity
-                .status(HttpStatus.OK)
-                .headers(headers)
-                .body(avatar.getData());
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl())
+                .contentType(MediaType.parseMediaType(avatar.getMediaType()))
+                .contentLength(avatar.getFileSize())
+                .body(os -> servedFromDb.increment(avatarService.writeAvatarData(id, os)));
     }
 
     @GetMapping(value = "/{id}/avatar-from-file")
-    public void downloadAvatarFile(@PathVariable Long id, HttpServletResponse response) throws IOException {
+    public ResponseEntity<Resource> downloadAvatarFile(@PathVariable Long id, WebRequest request)
+            throws IOException {
+        Avatar avatar = avatarService.findAvatar(id);
+        if (notModified(request, avatar)) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl())
+                .contentType(MediaType.parseMediaType(avatar.getMediaType()))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(new CountingResource(avatarService.getAvatarResource(avatar), servedFromFile));
+    }
+
+    @GetMapping(value = "/{id}/preview")
+    public ResponseEntity<byte[]> downloadPreview(@PathVariable Long id,
+                                                  @RequestParam(defaultValue = "128") int size,
+                                                  WebRequest request) throws IOException {
         Avatar avatar = avatarService.findAvatar(id);
+        if (request.checkNotModified(avatarService.getPreviewEtag(avatar, size))) {
+            return null;
+        }
+
+        AvatarPreview preview = avatarService.getPreview(avatar, size);
+        servedPreviews.increment(preview.data().length);
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl())
+                .contentType(MediaType.parseMediaType(preview.mediaType()))
+                .contentLength(preview.data().length)
+                .body(preview.data());
+    }
+
+    private boolean notModified(WebRequest request, Avatar avatar) {
+        long lastModified = avatar.getLastModified() == null ? -1 : avatar.getLastModified().toEpochMilli();
+        return request.checkNotModified(avatar.getEtag(), lastModified);
+    }
+
+    private static Counter servedBytes(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("avatar.bytes.served").baseUnit("bytes").tag("source", source).register(meterRegistry);
+    }
+
+    private CacheControl cacheControl() {
+        return CacheControl.maxAge(CACHE_MAX_AGE).cachePrivate().mustRevalidate();
+    }
+
+    /**
+     * Counts the bytes actually read from the file while the response is written, so whole files, ranges and
+     * aborted downloads are all reported as what was sent.
+     */
+    private static class CountingResource extends AbstractResource {
+        private final Resource resource;
+        private final Counter counter;
+
+        CountingResource(Resource resource, Counter counter) {
+            this.resource = resource;
+            this.counter = counter;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(resource.getInputStream()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b != -1) {
+                        counter.increment();
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = super.read(b, off, len);
+                    if (read > 0) {
+                        counter.increment(read);
+                    }
+                    return read;
+                }
+            };
+        }
+
+        @Override
+        public boolean exists() {
+            return resource.exists();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return resource.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return resource.lastModified();
+        }
+
+        @Override
+        public String getFilename() {
+            return resource.getFilename();
+        }
 
-        Path path = Path.of(avatar.getFilePath());
-        try (InputStream is = Files.newInputStream(path);
-             OutputStream os = response.getOutputStream();) {
-            response.setStatus(200);
-            response.setContentType(avatar.getMediaType());
-            response.setContentLength((int) avatar.getFileSize());
-            is.transferTo(os);
+        @Override
+        public String getDescription() {
+            return resource.getDescription();
         }
     }
 }
@@ -0,0 +1,40 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Entity versions exposed as strong ETags, e.g. {@code "3"}.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the version an If-Match header requires, or {@code null} when the request is unconditional.
+     * If-Match uses the strong comparison, so a weak tag, or any value that is not one of our ETags, can never
+     * match and is mapped to a version no row has. A list of tags is rejected, as updates check a single version.
+     */
+    static Long version(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.contains(",")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must hold a single ETag");
+        }
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
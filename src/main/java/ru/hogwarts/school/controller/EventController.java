@@ -0,0 +1,28 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.service.EventService;
+
+@RestController
+@RequestMapping("events")
+public class EventController {
+    private final EventService eventService;
+
+    public EventController(EventService eventService) {
+        this.eventService = eventService;
+    }
+
+    /**
+     * Streams student and faculty changes. A reconnecting client resumes after the last event it saw,
+     * taken from the Last-Event-ID header or the {@code after} parameter; without either only new events are sent.
+     * When events after that id have expired, the stream starts with a {@code reset} event and the client has to
+     * reload its state.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                @RequestParam(required = false) Long after) {
+        return eventService.subscribe(lastEventId != null ? lastEventId : after);
+    }
+}
@@ -1,8 +1,14 @@
 package ru.hogwarts.school.controller;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.model.Faculty;
-import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.service.FacultyService;
 
 import java.util.List;
@@ -23,31 +29,74 @@ public class FacultyController {
     }
 
     @GetMapping("{id}")
-    public Faculty read(@PathVariable Long id) {
-        return facultyService.read(id);
+    public ResponseEntity<FacultyDto> read(@PathVariable Long id, WebRequest request) {
+        FacultyDto faculty = facultyService.read(id);
+        if (faculty == null) {
+            return ResponseEntity.ok().build();
+        }
+        if (request.checkNotModified(ETags.of(faculty.version()))) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(ETags.of(faculty.version())).body(faculty);
     }
 
     @PutMapping("{id}")
-    public Faculty update(@PathVariable Long id, @RequestBody Faculty faculty) {
-        return facultyService.update(id, faculty);
+    public ResponseEntity<Faculty> update(@PathVariable Long id, @RequestBody Faculty faculty,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            faculty.setVersion(ETags.version(ifMatch));
+        }
+        Faculty updated = facultyService.update(id, faculty);
+        if (updated == null) {
+            return ResponseEntity.ok().build();
+        }
+        return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(updated);
+    }
+
+    @PatchMapping("{id}")
+    public ResponseEntity<Void> patch(@PathVariable Long id, @RequestBody FacultyPatch patch,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = ETags.version(ifMatch);
+        if (!facultyService.patch(id, patch, version)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (version == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.noContent().eTag(ETags.of(version + 1)).build();
     }
 
     @DeleteMapping("{id}")
-    public Faculty delete(@PathVariable Long id) {
-        return facultyService.delete(id);
+    public ResponseEntity<Void> delete(@PathVariable Long id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (!facultyService.delete(id, ETags.version(ifMatch))) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping
-    public List<Faculty> filterByAge(@RequestParam String color) {
+    public List<FacultyDto> filterByAge(@RequestParam String color) {
         return facultyService.filterByColor(color);
     }
 
     @GetMapping("byNameOrColor")
-    public List<Faculty> findByColorOrNameIgnoreCase(String name, String color) {
+    public List<FacultyDto> findByColorOrNameIgnoreCase(String name, String color) {
         return facultyService.findByColorOrNameIgnoreCase(name, color);
     }
     @GetMapping("{id}/students")
-    public List<Student> getStudents(@PathVariable Long id) {
-        return facultyService.getStudents(id);
+    public List<StudentDto> getStudents(@PathVariable Long id,
+                                     @RequestParam(required = false) Long after,
+                                     @RequestParam(required = false) Integer page,
+                                     @RequestParam(defaultValue = "50") int limit) {
+        if (page != null) {
+            return facultyService.getStudents(id, page, limit);
+        }
+        return facultyService.getStudents(id, after, limit);
+    }
+
+    @GetMapping("{id}/stats")
+    public FacultyStats getStats(@PathVariable Long id) {
+        return facultyService.getStats(id);
     }
 }
@@ -1,7 +1,18 @@
 package ru.hogwarts.school.controller;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.hogwarts.school.model.Faculty;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.dto.BatchItemResult;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.dto.StudentStats;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.service.StudentService;
 
@@ -21,32 +32,110 @@ public class StudentController {
         return studentService.create(student);
     }
 
+    @PostMapping("batch")
+    public List<BatchItemResult> createAll(@RequestBody List<Student> students) {
+        return studentService.createAll(students);
+    }
+
+    @PutMapping("batch")
+    public List<BatchItemResult> updateAll(@RequestBody List<Student> students) {
+        return studentService.updateAll(students);
+    }
+
+    @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(studentService::exportStudents);
+    }
+
+    @GetMapping("stats")
+    public StudentStats getStats() {
+        return studentService.getStats();
+    }
+
+    @GetMapping("search")
+    public List<StudentDto> search(@RequestParam("q") String query, @RequestParam(defaultValue = "20") int limit) {
+        return studentService.search(query, limit);
+    }
+
     @GetMapping("{id}")
-    public Student read(@PathVariable Long id) {
-        return studentService.read(id);
+    public ResponseEntity<StudentDto> read(@PathVariable Long id, WebRequest request) {
+        StudentDto student = studentService.read(id);
+        if (student == null) {
+            return ResponseEntity.ok().build();
+        }
+        if (request.checkNotModified(ETags.of(student.version()))) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(ETags.of(student.version())).body(student);
     }
 
     @PutMapping("{id}")
-    public Student update(@PathVariable Long id, @RequestBody Student student) {
-        return studentService.update(id, student);
+    public ResponseEntity<Student> update(@PathVariable Long id, @RequestBody Student student,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            student.setVersion(ETags.version(ifMatch));
+        }
+        Student updated = studentService.update(id, student);
+        if (updated == null) {
+            return ResponseEntity.ok().build();
+        }
+        return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(updated);
+    }
+
+    @PatchMapping("{id}")
+    public ResponseEntity<Void> patch(@PathVariable Long id, @RequestBody StudentPatch patch,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = ETags.version(ifMatch);
+        if (!studentService.patch(id, patch, version)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (version == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.noContent().eTag(ETags.of(version + 1)).build();
     }
 
     @DeleteMapping("{id}")
-    public Student delete(@PathVariable Long id) {
-        return studentService.delete(id);
+    public ResponseEntity<Void> delete(@PathVariable Long id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (!studentService.delete(id, ETags.version(ifMatch))) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping
-    public List<Student> filterByAge(@RequestParam int age) {
-        return studentService.filterByAge(age);
+    public List<StudentDto> filterByAge(@RequestParam int age,
+                                     @RequestParam(required = false) Long after,
+                                     @RequestParam(required = false) Integer page,
+                                     @RequestParam(defaultValue = "50") int limit) {
+        if (page != null) {
+            return studentService.filterByAge(age, page, limit);
+        }
+        return studentService.filterByAge(age, after, limit);
     }
 
+    /**
+     * Keyset pages are ordered by age and id; the cursor is the age and id of the last student of the previous page.
+     */
     @GetMapping("betweenByAge")
-    public List<Student> findAllByAgeBetween(int fromAge, int toAge) {
-        return studentService.findAllByAgeBetween(fromAge, toAge);
+    public List<StudentDto> findAllByAgeBetween(int fromAge, int toAge,
+                                             @RequestParam(required = false) Integer afterAge,
+                                             @RequestParam(required = false) Long after,
+                                             @RequestParam(required = false) Integer page,
+                                             @RequestParam(defaultValue = "50") int limit) {
+        if (page != null) {
+            return studentService.findAllByAgeBetween(fromAge, toAge, page, limit);
+        }
+        if ((afterAge == null) != (after == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "afterAge and after must be given together");
+        }
+        return studentService.findAllByAgeBetween(fromAge, toAge, afterAge, after, limit);
     }
     @GetMapping("{id}/faculty")
-    public Faculty getFacultyStudent(@PathVariable Long id) {
+    public FacultyDto getFacultyStudent(@PathVariable Long id) {
         return studentService.getFacultyStudent(id);
     }
 }
@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record AgeSummary(Long count, Double averageAge, Integer minAge, Integer maxAge) {
+}
@@ -0,0 +1,12 @@
+package ru.hogwarts.school.dto;
+
+public record AvatarPreview(String contentHash, int size, String mediaType, byte[] data) {
+
+    public String etag() {
+        return etag(contentHash, size);
+    }
+
+    public static String etag(String contentHash, int size) {
+        return "\"" + contentHash + "-" + size + "\"";
+    }
+}
@@ -0,0 +1,12 @@
+package ru.hogwarts.school.dto;
+
+public record BatchItemResult(int index, Long id, String error) {
+
+    public static BatchItemResult ok(int index, Long id) {
+        return new BatchItemResult(index, id, null);
+    }
+
+    public static BatchItemResult failed(int index, Long id, String error) {
+        return new BatchItemResult(index, id, error);
+    }
+}
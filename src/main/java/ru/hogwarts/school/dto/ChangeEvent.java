@@ -0,0 +1,20 @@
+package ru.hogwarts.school.dto;
+
+import ru.hogwarts.school.model.OutboxEvent;
+
+import java.time.Instant;
+
+/**
+ * A published outbox event. {@code id} is its sequence number, which is also the SSE event id and resume cursor.
+ */
+public record ChangeEvent(long id, String aggregate, long aggregateId, OutboxEvent.Type type, Instant occurredAt) {
+
+    public static ChangeEvent of(OutboxEvent event) {
+        return new ChangeEvent(event.getSequenceNumber(), event.getAggregate(), event.getAggregateId(), event.getType(),
+                event.getCreatedAt());
+    }
+
+    public String name() {
+        return aggregate + "." + type.name().toLowerCase();
+    }
+}
@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record FacultyAgeSummary(Long facultyId, String facultyName, Long count, Double averageAge) {
+}
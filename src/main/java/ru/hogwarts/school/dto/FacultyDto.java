@@ -0,0 +1,10 @@
+package ru.hogwarts.school.dto;
+
+import ru.hogwarts.school.model.Faculty;
+
+public record FacultyDto(Long id, String name, String color, Long version) {
+
+    public static FacultyDto of(Faculty faculty) {
+        return new FacultyDto(faculty.getId(), faculty.getName(), faculty.getColor(), faculty.getVersion());
+    }
+}
@@ -0,0 +1,6 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+public record FacultyStats(Long facultyId, AgeSummary summary, List<AgeCount> ageHistogram) {
+}
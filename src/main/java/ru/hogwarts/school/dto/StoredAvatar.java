@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record StoredAvatar(Long id, String filePath, long fileSize, String contentHash) {
+}
@@ -0,0 +1,11 @@
+package ru.hogwarts.school.dto;
+
+import ru.hogwarts.school.model.Student;
+
+public record StudentDto(Long id, String name, int age, Long facultyId, Long version) {
+
+    public static StudentDto of(Student student) {
+        return new StudentDto(student.getId(), student.getName(), student.getAge(),
+                student.getFaculty() == null ? null : student.getFaculty().getId(), student.getVersion());
+    }
+}
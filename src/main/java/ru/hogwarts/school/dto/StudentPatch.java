@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record StudentPatch(String name, Integer age) {
+}
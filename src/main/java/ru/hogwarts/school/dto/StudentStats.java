@@ -0,0 +1,6 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+public record StudentStats(AgeSummary summary, List<AgeCount> ageHistogram, List<FacultyAgeSummary> faculties) {
+}
@@ -0,0 +1,177 @@
+package ru.hogwarts.school.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load shedding for the avatar endpoints, so that uploads and downloads cannot starve the rest of the API.
+ * A request must get a token from its client's bucket (429 otherwise) and from the global bucket, then a
+ * concurrency permit for its direction and, for uploads, room in the bytes-in-flight budget (503 otherwise).
+ * Rejections are immediate and carry Retry-After. Permits are held until the response completes, including
+ * async uploads and streamed downloads.
+ */
+public class AvatarRateLimitFilter extends OncePerRequestFilter {
+    private static final long BUSY_RETRY_SECONDS = 1;
+
+    private final Cache<String, TokenBucket> clientBuckets;
+    private final long clientCapacity;
+    private final double clientRefillPerSecond;
+    private final TokenBucket globalBucket;
+    private final Semaphore uploads;
+    private final Semaphore downloads;
+    private final long maxUploadBytesInFlight;
+    private final long maxRequestBytes;
+    private final AtomicLong uploadBytesInFlight = new AtomicLong();
+    private final MeterRegistry meterRegistry;
+
+    public AvatarRateLimitFilter(MeterRegistry meterRegistry,
+                                 long clientCapacity, double clientRefillPerSecond,
+                                 long globalCapacity, double globalRefillPerSecond,
+                                 int maxConcurrentUploads, int maxConcurrentDownloads,
+                                 long maxUploadBytesInFlight, long maxRequestBytes) {
+        this.meterRegistry = meterRegistry;
+        this.clientBuckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.clientCapacity = clientCapacity;
+        this.clientRefillPerSecond = clientRefillPerSecond;
+        this.globalBucket = new TokenBucket(globalCapacity, globalRefillPerSecond);
+        this.uploads = new Semaphore(maxConcurrentUploads);
+        this.downloads = new Semaphore(maxConcurrentDownloads);
+        this.maxUploadBytesInFlight = maxUploadBytesInFlight;
+        this.maxRequestBytes = maxRequestBytes;
+        meterRegistry.gauge("avatar.upload.bytes_in_flight", uploadBytesInFlight);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean upload = HttpMethod.POST.matches(request.getMethod());
+        long uploadBytes = upload ? request.getContentLengthLong() : 0;
+        if (uploadBytes > maxRequestBytes) {
+            reject(response, HttpStatus.PAYLOAD_TOO_LARGE, 0, "too_large");
+            return;
+        }
+        if (uploadBytes < 0) {
+            uploadBytes = maxRequestBytes;
+        }
+
+        TokenBucket clientBucket = clientBuckets.get(request.getRemoteAddr(),
+                key -> new TokenBucket(clientCapacity, clientRefillPerSecond));
+        long wait = clientBucket.tryConsume();
+        if (wait > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, seconds(wait), "client_rate");
+            return;
+        }
+        wait = globalBucket.tryConsume();
+        if (wait > 0) {
+            clientBucket.refund();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, seconds(wait), "global_rate");
+            return;
+        }
+
+        Semaphore concurrency = upload ? uploads : downloads;
+        if (!concurrency.tryAcquire()) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, BUSY_RETRY_SECONDS, "concurrency");
+            return;
+        }
+        if (upload && !reserveUploadBytes(uploadBytes)) {
+            concurrency.release();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, BUSY_RETRY_SECONDS, "bytes_in_flight");
+            return;
+        }
+
+        long reservedBytes = uploadBytes;
+        Runnable release = releaseOnce(() -> {
+            uploadBytesInFlight.addAndGet(-reservedBytes);
+            concurrency.release();
+        });
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                release.run();
+            }
+        }
+    }
+
+    private boolean reserveUploadBytes(long bytes) {
+        long current;
+        do {
+            current = uploadBytesInFlight.get();
+            // an upload larger than the whole budget still goes through when nothing else is in flight
+            if (current > 0 && current + bytes > maxUploadBytesInFlight) {
+                return false;
+            }
+        } while (!uploadBytesInFlight.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String reason) {
+        meterRegistry.counter("avatar.requests.rejected", "reason", reason).increment();
+        response.setStatus(status.value());
+        if (retryAfterSeconds > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+    }
+
+    private static long seconds(long nanos) {
+        return Math.max(1, (long) Math.ceil(nanos / (double) TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private static Runnable releaseOnce(Runnable release) {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        };
+    }
+
+    private record ReleasingListener(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.hogwarts.school.filter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket refilled continuously at a fixed rate up to its capacity.
+ */
+class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(long capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes one token and returns 0, or returns how many nanoseconds to wait until one is available.
+     */
+    synchronized long tryConsume() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+}
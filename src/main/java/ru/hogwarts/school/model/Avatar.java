@@ -1,10 +1,8 @@
 package ru.hogwarts.school.model;
 
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.Id;
-import jakarta.persistence.OneToOne;
+import jakarta.persistence.*;
 
+import java.time.Instant;
 import java.util.Objects;
 
 @Entity
@@ -15,18 +13,24 @@ public class Avatar {
     private String filePath;
     private long fileSize;
     private String mediaType;
-    private byte[] data;
+    private String contentHash;
+    private Instant lastModified;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "data_id")
+    private AvatarData data;
 
     @OneToOne
     private Student student;
 
     public Avatar() {
     }
-    public byte[] getData() {
+
+    public AvatarData getData() {
         return data;
     }
 
-    public void setData(byte[] data) {
+    public void setData(AvatarData data) {
         this.data = data;
     }
 
@@ -62,6 +66,26 @@ public class Avatar {
         this.mediaType = mediaType;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getEtag() {
+        return contentHash == null ? null : "\"" + contentHash + "\"";
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
     public Student getStudent() {
         return student;
     }
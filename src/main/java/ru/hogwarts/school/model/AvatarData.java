@@ -0,0 +1,50 @@
+package ru.hogwarts.school.model;
+
+import jakarta.persistence.*;
+
+import java.sql.Blob;
+
+@Entity
+public class AvatarData {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Column(unique = true, length = 64)
+    private String hash;
+
+    @Lob
+    private Blob data;
+
+    public AvatarData(String hash, Blob data) {
+        this.hash = hash;
+        this.data = data;
+    }
+
+    public AvatarData() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public Blob getData() {
+        return data;
+    }
+
+    public void setData(Blob data) {
+        this.data = data;
+    }
+}
@@ -1,21 +1,23 @@
 package ru.hogwarts.school.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.Id;
-import jakarta.persistence.OneToMany;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
 
 import java.util.List;
 import java.util.Objects;
 @Entity
+@Table(indexes = @Index(name = "faculty_color_idx", columnList = "color"))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Faculty {
     @Id
-    @GeneratedValue
-
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "faculty_seq")
+    @SequenceGenerator(name = "faculty_seq", sequenceName = "faculty_seq", allocationSize = 50)
     private Long id;
     private String name;
     private String color;
+    @Version
+    private Long version;
     @JsonIgnore
     @OneToMany(mappedBy = "faculty")
     private List<Student> students;
@@ -61,6 +63,14 @@ public class Faculty {
         this.color = color;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
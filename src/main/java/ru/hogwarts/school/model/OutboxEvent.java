@@ -0,0 +1,66 @@
+package ru.hogwarts.school.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+    public enum Type {CREATED, UPDATED, DELETED}
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+    private String aggregate;
+    private Long aggregateId;
+    @Enumerated(EnumType.STRING)
+    private Type type;
+    private Instant createdAt;
+    private Instant publishedAt;
+    private Long sequenceNumber;
+
+    public OutboxEvent(String aggregate, Long aggregateId, Type type) {
+        this.aggregate = aggregate;
+        this.aggregateId = aggregateId;
+        this.type = type;
+        this.createdAt = Instant.now();
+    }
+
+    public OutboxEvent() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getAggregate() {
+        return aggregate;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+
+    public Long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public void publish(long sequenceNumber, Instant publishedAt) {
+        this.sequenceNumber = sequenceNumber;
+        this.publishedAt = publishedAt;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.hogwarts.school.model;
+
+import jakarta.persistence.*;
+
+/**
+ * The last sequence number handed to a published outbox event. There is a single row; publishers lock it, so
+ * numbers are assigned without gaps and in the order their transactions commit.
+ */
+@Entity
+@Table(name = "outbox_sequence")
+public class OutboxSequence {
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+    private long lastNumber;
+
+    public OutboxSequence(Integer id) {
+        this.id = id;
+    }
+
+    public OutboxSequence() {
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public long getLastNumber() {
+        return lastNumber;
+    }
+
+    public long next() {
+        return ++lastNumber;
+    }
+}
@@ -4,15 +4,22 @@ import jakarta.persistence.*;
 
 import java.util.Objects;
 @Entity
+@Table(indexes = {
+        @Index(name = "student_age_id_idx", columnList = "age, id"),
+        @Index(name = "student_faculty_id_id_idx", columnList = "faculty_id, id")
+})
 public class Student{
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_seq")
+    @SequenceGenerator(name = "student_seq", sequenceName = "student_seq", allocationSize = 50)
     private Long id;
     private String name;
     private int age;
+    @Version
+    private Long version;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "faculty_id")
     private Faculty faculty;
 
@@ -58,6 +65,14 @@ public class Student{
         this.age = age;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
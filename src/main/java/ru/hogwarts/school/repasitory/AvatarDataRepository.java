@@ -0,0 +1,26 @@
+package ru.hogwarts.school.repasitory;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.model.AvatarData;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface AvatarDataRepository extends JpaRepository<AvatarData, Long> {
+
+    Optional<AvatarData> findByHash(String hash);
+
+    @Query("select d.id from AvatarData d where d.id > :after "
+            + "and not exists (select 1 from Avatar a where a.data = d) order by d.id")
+    List<Long> findUnreferencedIds(@Param("after") long after, Limit limit);
+
+    @Modifying
+    @Query("delete from AvatarData d where d.id in :ids and not exists (select 1 from Avatar a where a.data = d)")
+    int deleteUnreferenced(@Param("ids") Collection<Long> ids);
+
+}
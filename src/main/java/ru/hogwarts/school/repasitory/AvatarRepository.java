@@ -1,13 +1,45 @@
 package ru.hogwarts.school.repasitory;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.StoredAvatar;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarData;
 import ru.hogwarts.school.model.Student;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface AvatarRepository extends JpaRepository<Avatar, Long> {
 
     Optional<Avatar> findByStudent(Student student);
 
+    @Query("select new ru.hogwarts.school.dto.StoredAvatar(a.id, a.filePath, a.fileSize, a.contentHash) "
+            + "from Avatar a where a.data is null and a.contentHash is not null and a.id > :after order by a.id")
+    List<StoredAvatar> findWithoutDataAfter(@Param("after") long after, Limit limit);
+
+    @Modifying
+    @Query("update Avatar a set a.data = :data where a.contentHash = :hash and a.data is null")
+    int linkData(@Param("hash") String hash, @Param("data") AvatarData data);
+
+    @Modifying
+    @Query("delete from Avatar a where a.student.id = :studentId")
+    int deleteByStudentId(@Param("studentId") Long studentId);
+
+    @Modifying
+    @Query("delete from Avatar a where a.student is null")
+    int deleteWithoutStudent();
+
+    @Query("select a.filePath from Avatar a where a.filePath in :paths")
+    Set<String> findReferencedFilePaths(@Param("paths") Collection<String> paths);
+
+    @Query("select new ru.hogwarts.school.dto.StoredAvatar(a.id, a.filePath, a.fileSize, a.contentHash) "
+            + "from Avatar a where a.id > :after order by a.id")
+    List<StoredAvatar> findStoredAfter(@Param("after") long after, Limit limit);
+
 }
@@ -1,12 +1,34 @@
 package ru.hogwarts.school.repasitory;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.FacultyDto;
 import ru.hogwarts.school.model.Faculty;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface FacultyRepository extends JpaRepository<Faculty, Long> {
-    List<Faculty> findAlByColor(String color);
+    String SELECT_DTO = "select new ru.hogwarts.school.dto.FacultyDto(f.id, f.name, f.color, f.version) from Faculty f";
 
-    List<Faculty> findByColorOrNameIgnoreCase(String name, String color);
+    @Query(SELECT_DTO + " where f.id = :id")
+    Optional<FacultyDto> findDtoById(@Param("id") Long id);
+
+    @Query(SELECT_DTO + " where f.color = :color")
+    List<FacultyDto> findAlByColor(@Param("color") String color);
+
+    @Query(SELECT_DTO + " where lower(f.color) = lower(:color) or lower(f.name) = lower(:name)")
+    List<FacultyDto> findByColorOrNameIgnoreCase(@Param("name") String name, @Param("color") String color);
+
+    @Modifying
+    @Query("update Faculty f set f.name = coalesce(:name, f.name), f.color = coalesce(:color, f.color)," +
+            " f.version = f.version + 1 where f.id = :id and (:version is null or f.version = :version)")
+    int patch(@Param("id") Long id, @Param("name") String name, @Param("color") String color,
+              @Param("version") Long version);
+
+    @Modifying
+    @Query("delete from Faculty f where f.id = :id and (:version is null or f.version = :version)")
+    int deleteByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
 }
@@ -0,0 +1,29 @@
+package ru.hogwarts.school.repasitory;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.model.OutboxEvent;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * The oldest unpublished events. Only called with the {@code outbox_sequence} row locked, so a single
+     * publisher at a time sees them.
+     */
+    List<OutboxEvent> findAllByPublishedAtIsNullOrderByIdAsc(Limit limit);
+
+    List<OutboxEvent> findAllBySequenceNumberGreaterThanOrderBySequenceNumberAsc(long after, Limit limit);
+
+    @Query("select min(e.sequenceNumber) from OutboxEvent e")
+    Long findOldestSequenceNumber();
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") Instant before);
+}
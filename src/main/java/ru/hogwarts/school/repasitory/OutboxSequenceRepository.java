@@ -0,0 +1,17 @@
+package ru.hogwarts.school.repasitory;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import ru.hogwarts.school.model.OutboxSequence;
+
+import java.util.Optional;
+
+public interface OutboxSequenceRepository extends JpaRepository<OutboxSequence, Integer> {
+
+    /**
+     * Locks the sequence row until the end of the transaction; concurrent publishers wait for it.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<OutboxSequence> findForUpdateById(Integer id);
+}
@@ -1,14 +1,97 @@
 package ru.hogwarts.school.repasitory;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.AgeCount;
+import ru.hogwarts.school.dto.AgeSummary;
+import ru.hogwarts.school.dto.FacultyAgeSummary;
+import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.model.Student;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface StudentRepository extends JpaRepository<Student, Long> {
+    String SELECT_DTO = "select new ru.hogwarts.school.dto.StudentDto(s.id, s.name, s.age, s.faculty.id, s.version)"
+            + " from Student s";
 
-    List<Student> findAllByAge(int age);
+    @Override
+    @EntityGraph(attributePaths = "faculty")
+    Optional<Student> findById(Long id);
 
-    List<Student> findAllByAgeBetween(int fromAge, int toAge);
+    @Query(SELECT_DTO + " where s.id = :id")
+    Optional<StudentDto> findDtoById(@Param("id") Long id);
 
+    @Query(SELECT_DTO + " where s.id in :ids")
+    List<StudentDto> findAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SELECT_DTO + " where s.age = :age and s.id > :after order by s.id")
+    List<StudentDto> findAllByAgeAndIdGreaterThanOrderByIdAsc(@Param("age") int age, @Param("after") long after,
+                                                              Limit limit);
+
+    @Query(SELECT_DTO + " where s.age = :age")
+    List<StudentDto> findAllByAge(@Param("age") int age, Pageable pageable);
+
+    @Query(SELECT_DTO + " where s.age between :fromAge and :toAge order by s.age, s.id")
+    List<StudentDto> findAllByAgeBetweenOrderByAgeAscIdAsc(@Param("fromAge") int fromAge, @Param("toAge") int toAge,
+                                                           Limit limit);
+
+    @Query(SELECT_DTO + " where s.age between :fromAge and :toAge" +
+            " and (s.age > :afterAge or (s.age = :afterAge and s.id > :after))" +
+            " order by s.age, s.id")
+    List<StudentDto> findAllByAgeBetweenAfter(@Param("fromAge") int fromAge, @Param("toAge") int toAge,
+                                              @Param("afterAge") int afterAge, @Param("after") long after,
+                                              Limit limit);
+
+    @Query(SELECT_DTO + " where s.age between :fromAge and :toAge")
+    List<StudentDto> findAllByAgeBetween(@Param("fromAge") int fromAge, @Param("toAge") int toAge, Pageable pageable);
+
+    @Query(SELECT_DTO + " where s.faculty.id = :facultyId and s.id > :after order by s.id")
+    List<StudentDto> findAllByFacultyIdAndIdGreaterThanOrderByIdAsc(@Param("facultyId") Long facultyId,
+                                                                    @Param("after") long after, Limit limit);
+
+    @Query(SELECT_DTO + " where s.faculty.id = :facultyId")
+    List<StudentDto> findAllByFacultyId(@Param("facultyId") Long facultyId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(SELECT_DTO + " order by s.id")
+    Stream<StudentDto> streamAll();
+
+    @Query("select new ru.hogwarts.school.dto.AgeSummary(count(s), avg(s.age), min(s.age), max(s.age)) from Student s")
+    AgeSummary summarizeAges();
+
+    @Query("select new ru.hogwarts.school.dto.AgeSummary(count(s), avg(s.age), min(s.age), max(s.age))" +
+            " from Student s where s.faculty.id = :facultyId")
+    AgeSummary summarizeAgesByFaculty(@Param("facultyId") Long facultyId);
+
+    @Query("select new ru.hogwarts.school.dto.AgeCount(s.age, count(s)) from Student s group by s.age order by s.age")
+    List<AgeCount> countByAge();
+
+    @Query("select new ru.hogwarts.school.dto.AgeCount(s.age, count(s)) from Student s" +
+            " where s.faculty.id = :facultyId group by s.age order by s.age")
+    List<AgeCount> countByAgeAndFaculty(@Param("facultyId") Long facultyId);
+
+    @Query("select new ru.hogwarts.school.dto.FacultyAgeSummary(f.id, f.name, count(s), avg(s.age))" +
+            " from Student s join s.faculty f group by f.id, f.name order by f.id")
+    List<FacultyAgeSummary> summarizeAgesPerFaculty();
+
+    @Modifying
+    @Query("update Student s set s.name = coalesce(:name, s.name), s.age = coalesce(:age, s.age)," +
+            " s.version = s.version + 1 where s.id = :id and (:version is null or s.version = :version)")
+    int patch(@Param("id") Long id, @Param("name") String name, @Param("age") Integer age,
+              @Param("version") Long version);
+
+    @Modifying
+    @Query("delete from Student s where s.id = :id and (:version is null or s.version = :version)")
+    int deleteByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
 }
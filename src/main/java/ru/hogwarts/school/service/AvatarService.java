@@ -1,12 +1,26 @@
 package ru.hogwarts.school.service;
 
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.AvatarPreview;
 import ru.hogwarts.school.model.Avatar;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
 
 public interface AvatarService {
     Avatar uploadAvatar(Long studentId, MultipartFile avatar) throws IOException;
 
+    CompletableFuture<Avatar> uploadAvatarAsync(Long studentId, MultipartFile avatar) throws IOException;
+
     Avatar findAvatar(Long avatarId);
+
+    long writeAvatarData(Long avatarId, OutputStream os) throws IOException;
+
+    Resource getAvatarResource(Avatar avatar) throws IOException;
+
+    String getPreviewEtag(Avatar avatar, int size);
+
+    AvatarPreview getPreview(Avatar avatar, int size) throws IOException;
 }
@@ -0,0 +1,50 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store for original avatar files. A stored file is identified by the location saved in
+ * {@code Avatar.filePath}; locations written before the storage existed are plain file paths and stay readable.
+ */
+public interface AvatarStorage {
+
+    Stored store(InputStream content, String extension) throws IOException;
+
+    InputStream open(String location) throws IOException;
+
+    Resource resource(String location) throws IOException;
+
+    boolean exists(String location);
+
+    void delete(String location) throws IOException;
+
+    Stream<String> locations() throws IOException;
+
+    /**
+     * The location relative to the storage root, so locations written under different spellings of the root
+     * path compare equal.
+     */
+    String normalize(String location);
+
+    /**
+     * Takes an unreferenced file out of use before deleting it: from then on {@link #store} writes the same
+     * content anew instead of reusing it. Returns when the file was last stored or reused, or null if it does
+     * not exist. The file must then be either {@link #restore restored} or {@link #deleteQuarantined deleted}.
+     */
+    Instant quarantine(String location) throws IOException;
+
+    void restore(String location) throws IOException;
+
+    /**
+     * Deletes a quarantined file and returns the number of bytes it held.
+     */
+    long deleteQuarantined(String location) throws IOException;
+
+    record Stored(String location, String hash, long size) {
+    }
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface EventService {
+    SseEmitter subscribe(Long after);
+}
@@ -1,5 +1,9 @@
 package ru.hogwarts.school.service;
 
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 
@@ -8,14 +12,19 @@ import java.util.List;
 public interface FacultyService {
     Faculty create(Faculty faculty);
 
-    Faculty read(Long id);
+    FacultyDto read(Long id);
 
     Faculty update(Long id, Faculty faculty);
 
-    Faculty delete(Long id);
+    boolean patch(Long id, FacultyPatch patch, Long version);
 
-    List<Faculty> filterByColor(String color);
-    List<Faculty> findByColorOrNameIgnoreCase(String name, String color);
+    boolean delete(Long id, Long version);
 
-    List<Student> getStudents(Long facultyId);
+    List<FacultyDto> filterByColor(String color);
+    List<FacultyDto> findByColorOrNameIgnoreCase(String name, String color);
+
+    List<StudentDto> getStudents(Long facultyId, Long after, int limit);
+    List<StudentDto> getStudents(Long facultyId, int page, int limit);
+
+    FacultyStats getStats(Long facultyId);
 }
@@ -1,22 +1,44 @@
 package ru.hogwarts.school.service;
 
+import ru.hogwarts.school.dto.BatchItemResult;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.dto.StudentStats;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface StudentService {
 
     Student create(Student student);
 
-    Student read(Long id);
+    StudentDto read(Long id);
 
     Student update(Long id, Student student);
 
-    Student delete(Long id);
+    List<BatchItemResult> createAll(List<Student> students);
 
-    List<Student> filterByAge(int age);
-    List<Student> findAllByAgeBetween(int fromAge, int toAge);
+    List<BatchItemResult> updateAll(List<Student> students);
 
-    Faculty getFacultyStudent(Long studentId);
+    boolean patch(Long id, StudentPatch patch, Long version);
+
+    boolean delete(Long id, Long version);
+
+    List<StudentDto> filterByAge(int age, Long after, int limit);
+    List<StudentDto> filterByAge(int age, int page, int limit);
+
+    List<StudentDto> findAllByAgeBetween(int fromAge, int toAge, Integer afterAge, Long after, int limit);
+    List<StudentDto> findAllByAgeBetween(int fromAge, int toAge, int page, int limit);
+
+    FacultyDto getFacultyStudent(Long studentId);
+
+    void exportStudents(OutputStream os) throws IOException;
+
+    StudentStats getStats();
+
+    List<StudentDto> search(String query, int limit);
 }
@@ -0,0 +1,260 @@
+package ru.hogwarts.school.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.StoredAvatar;
+import ru.hogwarts.school.model.AvatarData;
+import ru.hogwarts.school.repasitory.AvatarDataRepository;
+import ru.hogwarts.school.repasitory.AvatarRepository;
+import ru.hogwarts.school.service.AvatarStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Persists avatar blobs into the database. In write-behind mode uploads only enqueue the blob: a background
+ * worker writes queued blobs in batches, retries failures with backoff and links the blob to every avatar with
+ * the same content hash. A batch inserts its blobs in its own transaction; when it fails, for instance because
+ * another instance stored one of the hashes first, every item is retried alone through {@link #write}. Blobs
+ * still missing after a crash are queued again on startup from the avatar storage.
+ */
+@Component
+public class AvatarDataWriter {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarDataWriter.class);
+
+    private final AvatarDataRepository avatarDataRepository;
+    private final AvatarRepository avatarRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate insertTemplate;
+    private final AvatarStorage avatarStorage;
+    private final boolean writeBehind;
+    private final int batchSize;
+    private final int recoveryPageSize;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+
+    private final BlockingQueue<PendingData> queue;
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("avatar-data-retry").daemon().factory());
+    private Thread worker;
+    private volatile boolean running = true;
+
+    public AvatarDataWriter(AvatarDataRepository avatarDataRepository, AvatarRepository avatarRepository,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                            AvatarStorage avatarStorage,
+                            @Value("${avatars.write-behind.enabled:false}") boolean writeBehind,
+                            @Value("${avatars.write-behind.queue-capacity:1000}") int queueCapacity,
+                            @Value("${avatars.write-behind.batch-size:16}") int batchSize,
+                            @Value("${avatars.write-behind.max-attempts:5}") int maxAttempts,
+                            @Value("${avatars.write-behind.retry-delay-ms:1000}") long retryDelayMillis,
+                            @Value("${avatars.write-behind.recovery-page-size:500}") int recoveryPageSize) {
+        this.avatarDataRepository = avatarDataRepository;
+        this.avatarRepository = avatarRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.insertTemplate = new TransactionTemplate(transactionManager);
+        this.insertTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.avatarStorage = avatarStorage;
+        this.writeBehind = writeBehind;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+        this.recoveryPageSize = recoveryPageSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        meterRegistry.gauge("avatar.write_behind.queue", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (writeBehind) {
+            worker = Thread.ofPlatform().name("avatar-data-writer").daemon().start(this::drain);
+        }
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Returns the stored blob for the content hash, copying it from the avatar storage when it is not in the
+     * database yet. The insert runs in its own transaction: when a concurrent writer stores the same hash first,
+     * only that transaction fails on the unique constraint and the caller's can still read the winner's row.
+     */
+    public AvatarData write(String hash, String location, long size) {
+        return avatarDataRepository.findByHash(hash).orElseGet(() -> {
+            Long id;
+            try {
+                id = insertTemplate.execute(status -> insert(hash, location, size).getId());
+            } catch (DataIntegrityViolationException e) {
+                return avatarDataRepository.findByHash(hash).orElseThrow(() -> e);
+            }
+            return avatarDataRepository.getReferenceById(id);
+        });
+    }
+
+    /**
+     * Queues the blob for the background writer once the current transaction commits, so the worker can see the
+     * avatar row it links to. When the queue is full the blob is written by the caller.
+     */
+    public void enqueue(String hash, String location, long size) {
+        PendingData pending = new PendingData(hash, location, size, 0);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            offer(pending);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                offer(pending);
+            }
+        });
+    }
+
+    private void offer(PendingData pending) {
+        if (!queue.offer(pending)) {
+            persistOrLog(pending);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!writeBehind) {
+            return;
+        }
+        int lost = 0;
+        long after = 0;
+        List<StoredAvatar> page;
+        do {
+            page = avatarRepository.findWithoutDataAfter(after, Limit.of(recoveryPageSize));
+            Set<String> offered = new HashSet<>();
+            for (StoredAvatar avatar : page) {
+                if (!offered.add(avatar.contentHash())) {
+                    continue;
+                }
+                if (avatarStorage.exists(avatar.filePath())) {
+                    offer(new PendingData(avatar.contentHash(), avatar.filePath(), avatar.fileSize(), 0));
+                } else {
+                    lost++;
+                }
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).id();
+            }
+        } while (page.size() == recoveryPageSize);
+        if (lost > 0) {
+            logger.warn("No stored file found for {} avatar(s) without data", lost);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        retries.shutdownNow();
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                PendingData first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingData> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        List<PendingData> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(this::persistOrLog);
+    }
+
+    private void writeBatch(List<PendingData> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::persistInBatch));
+        } catch (RuntimeException batchError) {
+            for (PendingData pending : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persist(pending));
+                } catch (RuntimeException e) {
+                    retry(pending, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the blob in the batch transaction itself; a conflict fails the whole batch into the per-item path.
+     */
+    private void persistInBatch(PendingData pending) {
+        AvatarData avatarData = avatarDataRepository.findByHash(pending.hash())
+                .orElseGet(() -> insert(pending.hash(), pending.location(), pending.size()));
+        avatarRepository.linkData(pending.hash(), avatarData);
+    }
+
+    private AvatarData insert(String hash, String location, long size) {
+        try (InputStream is = avatarStorage.open(location)) {
+            return avatarDataRepository.saveAndFlush(new AvatarData(hash, BlobProxy.generateProxy(is, size)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void persist(PendingData pending) {
+        AvatarData avatarData = write(pending.hash(), pending.location(), pending.size());
+        avatarRepository.linkData(pending.hash(), avatarData);
+    }
+
+    private void persistOrLog(PendingData pending) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(pending));
+        } catch (RuntimeException e) {
+            logger.warn("Avatar data {} left for recovery on next start", pending.hash(), e);
+        }
+    }
+
+    private void retry(PendingData pending, RuntimeException error) {
+        PendingData next = pending.nextAttempt();
+        if (next.attempts() >= maxAttempts || !running) {
+            logger.error("Giving up on avatar data {} after {} attempts", pending.hash(), next.attempts(), error);
+            return;
+        }
+        long delay = retryDelayMillis << (next.attempts() - 1);
+        retries.schedule(() -> offer(next), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private record PendingData(String hash, String location, long size, int attempts) {
+
+        PendingData nextAttempt() {
+            return new PendingData(hash, location, size, attempts + 1);
+        }
+    }
+}
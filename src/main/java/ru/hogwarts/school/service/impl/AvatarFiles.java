@@ -0,0 +1,153 @@
+package ru.hogwarts.school.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+final class AvatarFiles {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final String QUARANTINE_SUFFIX = ".orphan";
+
+    private AvatarFiles() {
+    }
+
+    /**
+     * Copies the content into the file in a single pass, computing its SHA-256 on the way.
+     */
+    static Copied copy(InputStream content, Path target, boolean force) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size = 0;
+            try (
+                    ReadableByteChannel in = Channels.newChannel(content);
+                    FileChannel out = FileChannel.open(target, WRITE, TRUNCATE_EXISTING)
+            ) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        size += out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                if (force) {
+                    out.force(true);
+                }
+            }
+            return new Copied(HexFormat.of().formatHex(digest.digest()), size);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the content to the end, returning its SHA-256 and size.
+     */
+    static Copied digest(InputStream content) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long size = 0;
+            for (int read; (read = content.read(buffer)) != -1; ) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+            return new Copied(HexFormat.of().formatHex(digest.digest()), size);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Flushes the directory entries of {@code directory}, making renames and creations inside it durable.
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * The location as a path relative to {@code root}, whatever form the root had when it was written; locations
+     * outside the root stay absolute.
+     */
+    static String relativeTo(Path root, String location) {
+        Path base = root.toAbsolutePath().normalize();
+        Path path = Path.of(location).toAbsolutePath().normalize();
+        return path.startsWith(base) ? base.relativize(path).toString() : path.toString();
+    }
+
+    /**
+     * Renames the file aside, so a store of the same content no longer finds it, and returns its modification
+     * time, which a store that reused the file before the rename has bumped. Returns null if the file is gone.
+     * A file left quarantined by a crash keeps its suffix and is listed and collected like any other orphan.
+     */
+    static Instant quarantine(Path file) throws IOException {
+        Path quarantined = quarantined(file);
+        try {
+            if (!quarantined.equals(file)) {
+                Files.move(file, quarantined, ATOMIC_MOVE);
+            }
+            return Files.getLastModifiedTime(quarantined).toInstant();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Moves a quarantined file back, or drops it if the same content has been stored there again meanwhile.
+     */
+    static void restore(Path file) throws IOException {
+        Path quarantined = quarantined(file);
+        if (quarantined.equals(file)) {
+            return;
+        }
+        if (Files.exists(file)) {
+            Files.deleteIfExists(quarantined);
+            return;
+        }
+        try {
+            Files.move(quarantined, file, ATOMIC_MOVE);
+        } catch (NoSuchFileException ignored) {
+            // already restored or deleted
+        }
+    }
+
+    /**
+     * Deletes a quarantined file and returns its size.
+     */
+    static long deleteQuarantined(Path file) throws IOException {
+        Path quarantined = quarantined(file);
+        try {
+            long size = Files.size(quarantined);
+            Files.delete(quarantined);
+            return size;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private static Path quarantined(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(QUARANTINE_SUFFIX) ? file : file.resolveSibling(name + QUARANTINE_SUFFIX);
+    }
+
+    record Copied(String hash, long size) {
+    }
+}
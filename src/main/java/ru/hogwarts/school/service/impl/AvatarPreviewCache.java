@@ -0,0 +1,112 @@
+package ru.hogwarts.school.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.AvatarPreview;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Bounded two-level cache of generated previews: a size-weighted Caffeine cache in memory keyed by avatar id and
+ * size, backed by files in {@code <avatars>/previews} named after the content hash. The disk index is a Caffeine
+ * cache too; evicted files are deleted by its removal listener, and file I/O never happens under a lock.
+ */
+@Component
+public class AvatarPreviewCache {
+    private final Path previewsDir;
+    private final Cache<String, AvatarPreview> memory;
+    private final Cache<Path, Boolean> disk;
+
+    public AvatarPreviewCache(@Value("${path.to.avatars.folder}") String avatarsDir,
+                              @Value("${avatars.preview.memory-max-bytes:16777216}") long memoryMaxBytes,
+                              @Value("${avatars.preview.disk-max-files:10000}") int diskMaxFiles) {
+        this.previewsDir = Path.of(avatarsDir, "previews");
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(memoryMaxBytes)
+                .weigher((String key, AvatarPreview preview) -> preview.data().length)
+                .build();
+        this.disk = Caffeine.newBuilder()
+                .maximumSize(diskMaxFiles)
+                .executor(Runnable::run)
+                .removalListener(this::onDiskRemoval)
+                .build();
+        loadDiskIndex();
+    }
+
+    public AvatarPreview get(Long avatarId, String contentHash, int size) throws IOException {
+        AvatarPreview preview = memory.getIfPresent(key(avatarId, size));
+        if (preview != null && preview.contentHash().equals(contentHash)) {
+            return preview;
+        }
+        for (String format : new String[]{"png", "jpg"}) {
+            Path path = diskPath(contentHash, size, format);
+            if (disk.getIfPresent(path) == null) {
+                continue;
+            }
+            try {
+                preview = new AvatarPreview(contentHash, size, "image/" + ("jpg".equals(format) ? "jpeg" : format),
+                        Files.readAllBytes(path));
+            } catch (NoSuchFileException e) {
+                disk.invalidate(path);
+                continue;
+            }
+            memory.put(key(avatarId, size), preview);
+            return preview;
+        }
+        return null;
+    }
+
+    public void put(Long avatarId, AvatarPreview preview, String format) throws IOException {
+        memory.put(key(avatarId, preview.size()), preview);
+        Files.createDirectories(previewsDir);
+        Path path = diskPath(preview.contentHash(), preview.size(), format);
+        Path tmp = Files.createTempFile(previewsDir, "preview-", ".tmp");
+        Files.write(tmp, preview.data());
+        Files.move(tmp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        disk.put(path, Boolean.TRUE);
+    }
+
+    private void loadDiskIndex() {
+        if (!Files.isDirectory(previewsDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(previewsDir)) {
+            files.filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                    .sorted(Comparator.comparing(path -> path.toFile().lastModified()))
+                    .forEach(path -> disk.put(path, Boolean.TRUE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void onDiskRemoval(Path path, Boolean present, RemovalCause cause) {
+        if (!cause.wasEvicted() || path == null || disk.asMap().containsKey(path)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // the file is re-evicted or overwritten on the next put
+        }
+    }
+
+    private Path diskPath(String contentHash, int size, String format) {
+        return previewsDir.resolve(contentHash + "-" + size + "." + format);
+    }
+
+    private String key(Long avatarId, int size) {
+        return avatarId + ":" + size;
+    }
+}
@@ -0,0 +1,262 @@
+package ru.hogwarts.school.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.StoredAvatar;
+import ru.hogwarts.school.repasitory.AvatarDataRepository;
+import ru.hogwarts.school.repasitory.AvatarRepository;
+import ru.hogwarts.school.service.AvatarStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Background garbage collector and integrity check for avatars. Every run walks the avatar storage and the
+ * avatar_data table in chunks, paced to a fixed number of items per second. An unreferenced file or blob is only
+ * removed when the previous run found it unreferenced as well, so uploads that have stored a file but not yet
+ * committed their avatar row are never collected. Files and avatar rows are matched on locations normalized
+ * against the storage root. Before an orphan file is deleted it is quarantined, so new uploads stop reusing it,
+ * and checked again: if an upload reused it since the previous run or a row now references it, it is restored.
+ * Each run also verifies the size and hash of the next slice of avatars, resuming where the previous run stopped.
+ */
+@Component
+public class AvatarReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarReconciler.class);
+
+    private final AvatarRepository avatarRepository;
+    private final AvatarDataRepository avatarDataRepository;
+    private final AvatarStorage avatarStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer runTimer;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int itemsPerSecond;
+    private final int verifyPerRun;
+
+    private Set<String> orphanFiles = Set.of();
+    private Instant orphanFilesFlaggedAt = Instant.EPOCH;
+    private Set<Long> orphanData = Set.of();
+    private long verifyCursor;
+
+    public AvatarReconciler(AvatarRepository avatarRepository, AvatarDataRepository avatarDataRepository,
+                            AvatarStorage avatarStorage, PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${avatars.reconciler.enabled:true}") boolean enabled,
+                            @Value("${avatars.reconciler.chunk-size:200}") int chunkSize,
+                            @Value("${avatars.reconciler.items-per-second:100}") int itemsPerSecond,
+                            @Value("${avatars.reconciler.verify-per-run:1000}") int verifyPerRun) {
+        this.avatarRepository = avatarRepository;
+        this.avatarDataRepository = avatarDataRepository;
+        this.avatarStorage = avatarStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.runTimer = meterRegistry.timer("avatar.reconciler.run");
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.itemsPerSecond = itemsPerSecond;
+        this.verifyPerRun = verifyPerRun;
+    }
+
+    @Scheduled(initialDelayString = "${avatars.reconciler.interval-ms:3600000}",
+            fixedDelayString = "${avatars.reconciler.interval-ms:3600000}")
+    public void scheduledRun() {
+        if (enabled) {
+            reconcile();
+        }
+    }
+
+    public synchronized void reconcile() {
+        runTimer.record(() -> {
+            Pacer pacer = new Pacer(itemsPerSecond);
+            try {
+                removeAvatarsWithoutStudent();
+                removeOrphanFiles(pacer);
+                removeOrphanData(pacer);
+                verify(pacer);
+            } catch (IOException e) {
+                logger.warn("Avatar reconciliation failed", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private void removeAvatarsWithoutStudent() {
+        Integer deleted = transactionTemplate.execute(status -> avatarRepository.deleteWithoutStudent());
+        meterRegistry.counter("avatar.reconciler.removed", "kind", "avatar").increment(deleted == null ? 0 : deleted);
+    }
+
+    private void removeOrphanFiles(Pacer pacer) throws IOException, InterruptedException {
+        Instant started = Instant.now();
+        Set<String> referenced = referencedFiles(pacer);
+        Set<String> unreferenced = new HashSet<>();
+        try (Stream<String> locations = avatarStorage.locations()) {
+            Iterator<String> iterator = locations.iterator();
+            int listed = 0;
+            while (iterator.hasNext()) {
+                String location = iterator.next();
+                String normalized = avatarStorage.normalize(location);
+                if (!referenced.contains(normalized)) {
+                    if (!orphanFiles.contains(normalized) || !deleteFile(location)) {
+                        unreferenced.add(normalized);
+                    }
+                }
+                if (++listed == chunkSize) {
+                    pacer.advance(listed);
+                    listed = 0;
+                }
+            }
+            pacer.advance(listed);
+        }
+        orphanFiles = unreferenced;
+        orphanFilesFlaggedAt = started;
+    }
+
+    /**
+     * The normalized locations of all avatars; rows may hold the same file under another spelling of the root.
+     */
+    private Set<String> referencedFiles(Pacer pacer) throws InterruptedException {
+        Set<String> referenced = new HashSet<>();
+        long after = 0;
+        List<StoredAvatar> avatars;
+        do {
+            avatars = avatarRepository.findStoredAfter(after, Limit.of(chunkSize));
+            for (StoredAvatar avatar : avatars) {
+                if (avatar.filePath() != null) {
+                    referenced.add(avatarStorage.normalize(avatar.filePath()));
+                }
+                after = avatar.id();
+            }
+            pacer.advance(avatars.size());
+        } while (avatars.size() == chunkSize);
+        return referenced;
+    }
+
+    /**
+     * Returns false if the file was kept because it is in use again.
+     */
+    private boolean deleteFile(String location) {
+        try {
+            Instant lastStored = avatarStorage.quarantine(location);
+            if (lastStored == null) {
+                return true;
+            }
+            // rows written since the scan come from store(), so they hold the location exactly as listed
+            Boolean referenced = transactionTemplate.execute(status ->
+                    !avatarRepository.findReferencedFilePaths(List.of(location)).isEmpty());
+            if (lastStored.isAfter(orphanFilesFlaggedAt) || Boolean.TRUE.equals(referenced)) {
+                avatarStorage.restore(location);
+                return false;
+            }
+            long size = avatarStorage.deleteQuarantined(location);
+            meterRegistry.counter("avatar.reconciler.removed", "kind", "file").increment();
+            meterRegistry.counter("avatar.reconciler.reclaimed.bytes").increment(size);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not delete orphan avatar file {}", location, e);
+            return false;
+        }
+    }
+
+    private void removeOrphanData(Pacer pacer) throws InterruptedException {
+        Set<Long> unreferenced = new HashSet<>();
+        long after = 0;
+        List<Long> ids;
+        do {
+            ids = avatarDataRepository.findUnreferencedIds(after, Limit.of(chunkSize));
+            List<Long> confirmed = ids.stream().filter(orphanData::contains).toList();
+            ids.stream().filter(id -> !orphanData.contains(id)).forEach(unreferenced::add);
+            if (!confirmed.isEmpty()) {
+                Integer deleted = transactionTemplate.execute(status -> avatarDataRepository.deleteUnreferenced(confirmed));
+                meterRegistry.counter("avatar.reconciler.removed", "kind", "data").increment(deleted == null ? 0 : deleted);
+            }
+            if (!ids.isEmpty()) {
+                after = ids.get(ids.size() - 1);
+            }
+            pacer.advance(ids.size());
+        } while (ids.size() == chunkSize);
+        orphanData = unreferenced;
+    }
+
+    private void verify(Pacer pacer) throws InterruptedException {
+        int verified = 0;
+        while (verified < verifyPerRun) {
+            List<StoredAvatar> avatars = avatarRepository.findStoredAfter(verifyCursor,
+                    Limit.of(Math.min(chunkSize, verifyPerRun - verified)));
+            if (avatars.isEmpty()) {
+                verifyCursor = 0;
+                return;
+            }
+            for (StoredAvatar avatar : avatars) {
+                String mismatch = check(avatar);
+                if (mismatch != null) {
+                    logger.warn("Avatar {} at {} failed verification: {}", avatar.id(), avatar.filePath(), mismatch);
+                    meterRegistry.counter("avatar.reconciler.mismatch", "reason", mismatch).increment();
+                }
+                verifyCursor = avatar.id();
+            }
+            verified += avatars.size();
+            meterRegistry.counter("avatar.reconciler.verified").increment(avatars.size());
+            pacer.advance(avatars.size());
+        }
+    }
+
+    private String check(StoredAvatar avatar) {
+        if (avatar.filePath() == null || !avatarStorage.exists(avatar.filePath())) {
+            return "missing";
+        }
+        AvatarFiles.Copied content;
+        try (InputStream is = avatarStorage.open(avatar.filePath())) {
+            content = AvatarFiles.digest(is);
+        } catch (IOException e) {
+            return "unreadable";
+        }
+        if (content.size() != avatar.fileSize()) {
+            return "size";
+        }
+        if (avatar.contentHash() != null && !avatar.contentHash().equals(content.hash())) {
+            return "hash";
+        }
+        return null;
+    }
+
+    /**
+     * Sleeps as needed to keep the run under the configured number of items per second.
+     */
+    private static class Pacer {
+        private final long started = System.nanoTime();
+        private final int itemsPerSecond;
+        private long items;
+
+        Pacer(int itemsPerSecond) {
+            this.itemsPerSecond = itemsPerSecond;
+        }
+
+        void advance(int processed) throws InterruptedException {
+            if (itemsPerSecond <= 0) {
+                return;
+            }
+            items += processed;
+            long ahead = TimeUnit.SECONDS.toNanos(items) / itemsPerSecond - (System.nanoTime() - started);
+            if (ahead > 0) {
+                TimeUnit.NANOSECONDS.sleep(ahead);
+            }
+        }
+    }
+}
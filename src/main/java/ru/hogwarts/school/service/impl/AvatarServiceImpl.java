@@ -1,33 +1,55 @@
 package ru.hogwarts.school.service.impl;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.AvatarPreview;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarData;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repasitory.AvatarDataRepository;
 import ru.hogwarts.school.repasitory.AvatarRepository;
 import ru.hogwarts.school.repasitory.StudentRepository;
 import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.AvatarStorage;
 
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 
 import static io.swagger.v3.core.util.AnnotationsUtils.getExtensions;
-import static java.nio.file.StandardOpenOption.CREATE_NEW;
 
 @Service
+@Timed(value = "school.service", histogram = true)
 public class AvatarServiceImpl implements AvatarService {
-    @Value("${path.to.avatars.folder}")
-    private String avatarsDir;
-    private final int BUFFER_SIZE = 1024;
+    @Value("${avatars.preview.sizes:64,128,256}")
+    private int[] previewSizes;
 
     private final StudentRepository studentRepository;
     private AvatarRepository avatarRepository;
+    private final AvatarDataRepository avatarDataRepository;
+    private final AvatarDataWriter avatarDataWriter;
+    private final AvatarStorage avatarStorage;
+    private final AvatarPreviewCache previewCache;
 
-    public AvatarServiceImpl(StudentRepository studentRepository, AvatarRepository avatarRepository) {
+    public AvatarServiceImpl(StudentRepository studentRepository, AvatarRepository avatarRepository,
+                             AvatarDataRepository avatarDataRepository, AvatarDataWriter avatarDataWriter,
+                             AvatarStorage avatarStorage, AvatarPreviewCache previewCache) {
         this.studentRepository = studentRepository;
         this.avatarRepository = avatarRepository;
+        this.avatarDataRepository = avatarDataRepository;
+        this.avatarDataWriter = avatarDataWriter;
+        this.avatarStorage = avatarStorage;
+        this.previewCache = previewCache;
     }
 
     @Override
@@ -35,45 +57,131 @@ public class AvatarServiceImpl implements AvatarService {
         Student student = studentRepository.findById(studentId).orElseThrow(() ->
                 new IllegalArgumentException(studentId + " - is not found")
         );
-        Path avatarPath = saveToLocal(student, avatarFile);
-        Avatar avatar = saveToDb(student, avatarPath, avatarFile);
+        AvatarStorage.Stored stored;
+        try (InputStream is = avatarFile.getInputStream()) {
+            stored = avatarStorage.store(is, getExtensions(avatarFile.getOriginalFilename()));
+        }
+        Avatar avatar = saveToDb(student, stored, avatarFile);
         return avatar;
     }
 
     @Override
+    @Async("avatarUploadExecutor")
+    public CompletableFuture<Avatar> uploadAvatarAsync(Long studentId, MultipartFile avatarFile) throws IOException {
+        return CompletableFuture.completedFuture(uploadAvatar(studentId, avatarFile));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Avatar findAvatar(Long avatarId) {
         return avatarRepository.findById(avatarId).orElseThrow(() ->
                 new IllegalArgumentException(avatarId + " - is not found")
         );
     }
 
-    private String getExtensions(String fileName) {
-        return fileName.substring(fileName.lastIndexOf(".") + 1);
+    @Override
+    @Transactional(readOnly = true)
+    public long writeAvatarData(Long avatarId, OutputStream os) throws IOException {
+        Avatar avatar = findAvatar(avatarId);
+        AvatarData avatarData = avatar.getData();
+        if (avatarData == null) {
+            try (InputStream is = avatarStorage.open(avatar.getFilePath())) {
+                return is.transferTo(os);
+            }
+        }
+        try (InputStream is = avatarData.getData().getBinaryStream()) {
+            return is.transferTo(os);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
     }
 
-    private Path saveToLocal(Student student, MultipartFile avatarFile) throws IOException {
-
-        Path avatarPath = Path.of(avatarsDir, student.getId() + "." + getExtensions(avatarFile.getOriginalFilename()));
-        Files.createDirectories(avatarPath.getParent());
-        Files.deleteIfExists(avatarPath);
-        try (
-                InputStream is = avatarFile.getInputStream();
-                OutputStream os = Files.newOutputStream(avatarPath, CREATE_NEW);
-                BufferedInputStream bis = new BufferedInputStream(is, BUFFER_SIZE);
-                BufferedOutputStream bos = new BufferedOutputStream(os, BUFFER_SIZE);
-        ) {
-            bis.transferTo(bos);
+    @Override
+    public Resource getAvatarResource(Avatar avatar) throws IOException {
+        return avatarStorage.resource(avatar.getFilePath());
+    }
+
+    @Override
+    public String getPreviewEtag(Avatar avatar, int size) {
+        return AvatarPreview.etag(previewHash(avatar), previewSize(size));
+    }
+
+    @Override
+    public AvatarPreview getPreview(Avatar avatar, int size) throws IOException {
+        Long avatarId = avatar.getId();
+        int previewSize = previewSize(size);
+        String contentHash = previewHash(avatar);
+        AvatarPreview preview = previewCache.get(avatarId, contentHash, previewSize);
+        if (preview != null) {
+            return preview;
+        }
+        BufferedImage source;
+        try (InputStream is = avatarStorage.open(avatar.getFilePath())) {
+            source = ImageIO.read(is);
         }
-        return avatarPath;
+        if (source == null) {
+            throw new IllegalArgumentException(avatarId + " - is not a readable image");
+        }
+        boolean png = source.getColorModel().hasAlpha() || MediaType.IMAGE_PNG_VALUE.equals(avatar.getMediaType());
+        String format = png ? "png" : "jpg";
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(scale(source, previewSize, png), format, os);
+        preview = new AvatarPreview(contentHash, previewSize,
+                png ? MediaType.IMAGE_PNG_VALUE : MediaType.IMAGE_JPEG_VALUE, os.toByteArray());
+        previewCache.put(avatarId, preview, format);
+        return preview;
+    }
+
+    private static String previewHash(Avatar avatar) {
+        return avatar.getContentHash() != null ? avatar.getContentHash() : "avatar" + avatar.getId();
+    }
+
+    private int previewSize(int size) {
+        for (int previewSize : previewSizes) {
+            if (size <= previewSize) {
+                return previewSize;
+            }
+        }
+        return previewSizes[previewSizes.length - 1];
+    }
+
+    private BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        double ratio = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private String getExtensions(String fileName) {
+        return fileName.substring(fileName.lastIndexOf(".") + 1);
     }
 
-    private Avatar saveToDb(Student student, Path avatarPath, MultipartFile avatarFile) throws IOException {
+    private Avatar saveToDb(Student student, AvatarStorage.Stored stored, MultipartFile avatarFile) {
         Avatar avatar = getAvatarByStudent(student);
-        avatar.setFilePath(avatarPath.toString());
-        avatar.setFileSize(avatarFile.getSize());
+        avatar.setFilePath(stored.location());
+        avatar.setFileSize(stored.size());
         avatar.setMediaType(avatarFile.getContentType());
-        avatar.setData(avatarFile.getBytes());
-        return avatarRepository.save(avatar);
+        avatar.setContentHash(stored.hash());
+        avatar.setLastModified(Instant.now());
+        if (!avatarDataWriter.isWriteBehind()) {
+            avatar.setData(avatarDataWriter.write(stored.hash(), stored.location(), stored.size()));
+            return avatarRepository.save(avatar);
+        }
+        avatar.setData(avatarDataRepository.findByHash(stored.hash()).orElse(null));
+        Avatar saved = avatarRepository.save(avatar);
+        if (saved.getData() == null) {
+            avatarDataWriter.enqueue(stored.hash(), stored.location(), stored.size());
+        }
+        return saved;
     }
 
     private Avatar getAvatarByStudent(Student student) {
@@ -83,4 +191,5 @@ public class AvatarServiceImpl implements AvatarService {
             return avatar;
         });
     }
-}
\ No newline at end of file
+
+}
@@ -0,0 +1,28 @@
+package ru.hogwarts.school.service.impl;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.model.OutboxEvent;
+import ru.hogwarts.school.repasitory.OutboxEventRepository;
+
+/**
+ * Records change events in the outbox table. Must be called inside the transaction of the mutation itself, so an
+ * event exists exactly when the change is committed.
+ */
+@Component
+public class ChangeEventOutbox {
+    static final String STUDENT = "student";
+    static final String FACULTY = "faculty";
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    public ChangeEventOutbox(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String aggregate, Long id, OutboxEvent.Type type) {
+        outboxEventRepository.save(new OutboxEvent(aggregate, id, type));
+    }
+}
@@ -0,0 +1,274 @@
+package ru.hogwarts.school.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.dto.ChangeEvent;
+import ru.hogwarts.school.model.OutboxEvent;
+import ru.hogwarts.school.model.OutboxSequence;
+import ru.hogwarts.school.repasitory.OutboxEventRepository;
+import ru.hogwarts.school.repasitory.OutboxSequenceRepository;
+import ru.hogwarts.school.service.EventService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Publishes the outbox and streams published events to SSE subscribers. Each run first drains the outbox with
+ * the {@code outbox_sequence} row locked, giving every event the next gap-free sequence number, then reads the
+ * published events after the lowest subscriber cursor and hands each subscriber the ones after its own. Events
+ * published by other instances are delivered the same way, and the sequence number is the SSE id a client
+ * resumes from. Sends happen on a virtual thread per subscriber fed by a bounded queue; a subscriber whose queue
+ * stays full for longer than {@code events.sse.max-lag} is dropped and has to reconnect with its last id. A client
+ * resuming from an id whose successors were already deleted after {@code events.outbox.retention} first gets a
+ * {@code reset} event carrying the current id, and has to resync before relying on the stream.
+ */
+@Service
+public class EventServiceImpl implements EventService {
+    private static final Logger logger = LoggerFactory.getLogger(EventServiceImpl.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSequenceRepository outboxSequenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long emitterTimeoutMillis;
+    private final Duration heartbeatInterval;
+    private final Duration retention;
+    private final int queueCapacity;
+    private final Duration maxLag;
+    private final Counter published;
+    private final Counter dropped;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private Instant lastHeartbeat = Instant.now();
+
+    public EventServiceImpl(OutboxEventRepository outboxEventRepository,
+                            OutboxSequenceRepository outboxSequenceRepository,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                            @Value("${events.publisher.batch-size:500}") int batchSize,
+                            @Value("${events.sse.timeout:30m}") Duration emitterTimeout,
+                            @Value("${events.sse.heartbeat:15s}") Duration heartbeatInterval,
+                            @Value("${events.outbox.retention:24h}") Duration retention,
+                            @Value("${events.sse.queue-capacity:1000}") int queueCapacity,
+                            @Value("${events.sse.max-lag:30s}") Duration maxLag) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxSequenceRepository = outboxSequenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.heartbeatInterval = heartbeatInterval;
+        this.retention = retention;
+        this.queueCapacity = queueCapacity;
+        this.maxLag = maxLag;
+        this.published = meterRegistry.counter("events.published");
+        this.dropped = meterRegistry.counter("events.subscribers.dropped");
+        meterRegistry.gauge("events.subscribers", subscribers, List::size);
+    }
+
+    @Override
+    public SseEmitter subscribe(Long after) {
+        long last = outboxSequenceRepository.findById(OutboxSequence.ID).map(OutboxSequence::getLastNumber).orElse(0L);
+        boolean reset = after != null && missed(after, last);
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, after == null || reset ? last : after, queueCapacity);
+        if (reset) {
+            subscriber.queue.add(SseEmitter.event().id(String.valueOf(last)).name("reset").data(last));
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        subscriber.sender = senders.submit(subscriber::send);
+        if (subscriber.closed) {
+            subscriber.close();
+        }
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Whether events after {@code after} have already been deleted, so the stream cannot be resumed from it.
+     */
+    private boolean missed(long after, long last) {
+        Long oldest = outboxEventRepository.findOldestSequenceNumber();
+        return after < (oldest != null ? oldest - 1 : last);
+    }
+
+    @Scheduled(initialDelayString = "${events.publisher.interval-ms:200}",
+            fixedDelayString = "${events.publisher.interval-ms:200}")
+    public void publish() {
+        int drained;
+        do {
+            drained = drain();
+            published.increment(drained);
+        } while (drained == batchSize);
+        if (deliver()) {
+            lastHeartbeat = Instant.now();
+        } else if (lastHeartbeat.plus(heartbeatInterval).isBefore(Instant.now())) {
+            heartbeat();
+        }
+        subscribers.removeIf(subscriber -> subscriber.closed);
+    }
+
+    private int drain() {
+        Integer drained = transactionTemplate.execute(status -> {
+            OutboxSequence sequence = outboxSequenceRepository.findForUpdateById(OutboxSequence.ID)
+                    .orElseGet(() -> outboxSequenceRepository.saveAndFlush(new OutboxSequence(OutboxSequence.ID)));
+            List<OutboxEvent> events = outboxEventRepository.findAllByPublishedAtIsNullOrderByIdAsc(Limit.of(batchSize));
+            Instant now = Instant.now();
+            for (OutboxEvent event : events) {
+                event.publish(sequence.next(), now);
+            }
+            return events.size();
+        });
+        return drained == null ? 0 : drained;
+    }
+
+    /**
+     * Hands every subscriber the published events after its cursor, a page at a time, until all of them have
+     * caught up or have a full queue.
+     */
+    private boolean deliver() {
+        boolean delivered = false;
+        Instant now = Instant.now();
+        while (true) {
+            List<Subscriber> waiting = subscribers.stream()
+                    .filter(subscriber -> !subscriber.closed && subscriber.hasRoom())
+                    .toList();
+            if (waiting.isEmpty()) {
+                break;
+            }
+            long after = waiting.stream().mapToLong(subscriber -> subscriber.cursor).min().orElseThrow();
+            List<ChangeEvent> events = outboxEventRepository
+                    .findAllBySequenceNumberGreaterThanOrderBySequenceNumberAsc(after, Limit.of(batchSize))
+                    .stream().map(ChangeEvent::of).toList();
+            for (Subscriber subscriber : waiting) {
+                delivered |= subscriber.offer(events);
+            }
+            if (events.size() < batchSize) {
+                break;
+            }
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.lagging(now, maxLag)) {
+                logger.debug("Dropping SSE subscriber at event {} that fell behind", subscriber.cursor);
+                dropped.increment();
+                subscriber.emitter.complete();
+                subscriber.close();
+            }
+        }
+        return delivered;
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.queue.offer(SseEmitter.event().comment("heartbeat"));
+        }
+        lastHeartbeat = Instant.now();
+    }
+
+    @Scheduled(initialDelayString = "${events.outbox.cleanup-interval-ms:600000}",
+            fixedDelayString = "${events.outbox.cleanup-interval-ms:600000}")
+    public void deletePublished() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(Instant.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            logger.debug("Deleted {} published outbox events", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private volatile Future<?> sender;
+        private volatile boolean closed;
+        /**
+         * The sequence number of the last event queued for this subscriber; only touched by the publisher.
+         */
+        private long cursor;
+        private Instant fullSince;
+
+        private Subscriber(SseEmitter emitter, long cursor, int capacity) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private boolean hasRoom() {
+            return queue.remainingCapacity() > 0;
+        }
+
+        /**
+         * Queues the events after the cursor while there is room; returns whether anything was queued.
+         */
+        private boolean offer(List<ChangeEvent> events) {
+            boolean queued = false;
+            for (ChangeEvent event : events) {
+                if (event.id() <= cursor) {
+                    continue;
+                }
+                if (!queue.offer(SseEmitter.event().id(String.valueOf(event.id())).name(event.name())
+                        .data(event, MediaType.APPLICATION_JSON))) {
+                    break;
+                }
+                cursor = event.id();
+                queued = true;
+            }
+            return queued;
+        }
+
+        private boolean lagging(Instant now, Duration maxLag) {
+            if (closed || hasRoom()) {
+                fullSince = null;
+                return false;
+            }
+            if (fullSince == null) {
+                fullSince = now;
+            }
+            return fullSince.plus(maxLag).isBefore(now);
+        }
+
+        private void send() {
+            try {
+                while (!closed) {
+                    emitter.send(queue.take());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+            }
+        }
+
+        private void close() {
+            closed = true;
+            Future<?> sender = this.sender;
+            if (sender != null) {
+                sender.cancel(true);
+            }
+        }
+    }
+}
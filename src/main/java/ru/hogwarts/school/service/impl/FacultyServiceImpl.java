@@ -1,63 +1,143 @@
 package ru.hogwarts.school.service.impl;
 
+import io.micrometer.core.annotation.Timed;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.OutboxEvent;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repasitory.FacultyRepository;
+import ru.hogwarts.school.repasitory.StudentRepository;
 import ru.hogwarts.school.service.FacultyService;
 
 import java.util.List;
 
 @Service
+@Timed(value = "school.service", histogram = true)
 public class FacultyServiceImpl implements FacultyService {
     private final FacultyRepository facultyRepository;
+    private final StudentRepository studentRepository;
+    private final ChangeEventOutbox outbox;
 
-    public FacultyServiceImpl(FacultyRepository facultyRepository) {
+    public FacultyServiceImpl(FacultyRepository facultyRepository, StudentRepository studentRepository,
+                              ChangeEventOutbox outbox) {
         this.facultyRepository = facultyRepository;
+        this.studentRepository = studentRepository;
+        this.outbox = outbox;
     }
 
     @Override
+    @CacheEvict(value = "facultiesByColor", allEntries = true)
+    @Transactional
     public Faculty create(Faculty faculty) {
-        return facultyRepository.save(faculty);
+        faculty.setId(null);
+        faculty.setVersion(null);
+        Faculty saved = facultyRepository.save(faculty);
+        outbox.record(ChangeEventOutbox.FACULTY, saved.getId(), OutboxEvent.Type.CREATED);
+        return saved;
     }
 
     @Override
-    public Faculty read(Long id) {
-        return facultyRepository.findById(id).orElse(null);
+    @Cacheable(value = "faculties", unless = "#result == null")
+    @Transactional
+    public FacultyDto read(Long id) {
+        return facultyRepository.findDtoById(id).orElse(null);
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(value = "faculties", key = "#id"),
+            @CacheEvict(value = {"facultiesByColor", "studentFaculty", "studentStats"}, allEntries = true)
+    })
+    @Transactional
     public Faculty update(Long id, Faculty faculty) {
         return facultyRepository.findById(id).map(facultyFromDb -> {
+            if (faculty.getVersion() != null && !faculty.getVersion().equals(facultyFromDb.getVersion())) {
+                throw StudentServiceImpl.staleVersion(id, faculty.getVersion());
+            }
             facultyFromDb.setName(faculty.getName());
             facultyFromDb.setColor(faculty.getColor());
-            facultyRepository.save(facultyFromDb);
+            facultyRepository.saveAndFlush(facultyFromDb);
+            outbox.record(ChangeEventOutbox.FACULTY, id, OutboxEvent.Type.UPDATED);
             return facultyFromDb;
         }).orElse(null);
     }
 
     @Override
-    public Faculty delete(Long id) {
-        return facultyRepository.findById(id).map(faculty -> {
-            facultyRepository.deleteById(id);
-            return faculty;
-        }).orElse(null);
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = "faculties", key = "#id"),
+            @CacheEvict(value = {"facultiesByColor", "studentFaculty", "studentStats"}, allEntries = true)
+    })
+    public boolean patch(Long id, FacultyPatch patch, Long version) {
+        if (facultyRepository.patch(id, patch.name(), patch.color(), version) == 0) {
+            return notChanged(id, version);
+        }
+        outbox.record(ChangeEventOutbox.FACULTY, id, OutboxEvent.Type.UPDATED);
+        return true;
+    }
+
+    private boolean notChanged(Long id, Long version) {
+        if (version != null && facultyRepository.existsById(id)) {
+            throw StudentServiceImpl.staleVersion(id, version);
+        }
+        return false;
     }
 
     @Override
-    public List<Faculty> filterByColor(String color) {
+    @Caching(evict = {
+            @CacheEvict(value = "faculties", key = "#id"),
+            @CacheEvict(value = {"facultiesByColor", "students", "studentFaculty", "studentStats", "facultyStats"},
+                    allEntries = true)
+    })
+    @Transactional
+    public boolean delete(Long id, Long version) {
+        if (facultyRepository.deleteByIdAndVersion(id, version) == 0) {
+            return notChanged(id, version);
+        }
+        outbox.record(ChangeEventOutbox.FACULTY, id, OutboxEvent.Type.DELETED);
+        return true;
+    }
+
+    @Override
+    @Cacheable("facultiesByColor")
+    @Transactional
+    public List<FacultyDto> filterByColor(String color) {
         return facultyRepository.findAlByColor(color);
     }
 
     @Override
-    public List<Faculty> findByColorOrNameIgnoreCase(String name, String color) {
+    @Transactional(readOnly = true)
+    public List<FacultyDto> findByColorOrNameIgnoreCase(String name, String color) {
         return facultyRepository.findByColorOrNameIgnoreCase(name, color);
     }
 
     @Override
-    public List<Student> getStudents(Long facultyId) {
-        return facultyRepository.findById(facultyId).map(faculty -> {
-            return faculty.getStudents();
-        }).orElse(null);
+    @Transactional(readOnly = true)
+    public List<StudentDto> getStudents(Long facultyId, Long after, int limit) {
+        return studentRepository.findAllByFacultyIdAndIdGreaterThanOrderByIdAsc(facultyId, after == null ? 0 : after,
+                StudentServiceImpl.limit(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StudentDto> getStudents(Long facultyId, int page, int limit) {
+        return studentRepository.findAllByFacultyId(facultyId, StudentServiceImpl.pageRequest(page, limit));
+    }
+
+    @Override
+    @Cacheable("facultyStats")
+    @Transactional
+    public FacultyStats getStats(Long facultyId) {
+        return new FacultyStats(facultyId,
+                studentRepository.summarizeAgesByFaculty(facultyId),
+                studentRepository.countByAgeAndFaculty(facultyId));
     }
 }
@@ -0,0 +1,447 @@
+package ru.hogwarts.school.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.service.AvatarStorage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Packs avatar files into append-only segment files under {@code <avatars>/segments} and serves them from
+ * memory mappings. Each segment is mapped once at its full size and reads slice that mapping, so nothing is
+ * remapped as the segment grows. An upload is hashed into a temp file first; the lock is then only held to
+ * reserve its range in the active segment, and the copy into the mapping and its {@code force()} run outside it.
+ * An append-only index maps each content hash to its segment, offset, length and store time; a record is
+ * appended only after the bytes are forced to disk, so a crash or a failed copy can leave unused bytes in a
+ * segment but never an index entry pointing at missing data. Reuses of stored content are recorded with their
+ * time too, which the reconciler checks before deleting. Deleted entries are tombstoned in the index; their
+ * space is not reclaimed. Quarantined entries are only taken out of the in-memory index, so a restart puts them
+ * back.
+ */
+@Component
+@ConditionalOnProperty(name = "avatars.storage.type", havingValue = "segment")
+public class SegmentFileAvatarStorage implements AvatarStorage {
+    static final String SEGMENTS_DIR = "segments";
+    private static final String LOCATION_PREFIX = "segment:";
+    private static final String DELETED = "-";
+    private static final String REUSED = "=";
+
+    private final Path dir;
+    private final int segmentMaxBytes;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedByteBuffer> mappings = new ConcurrentHashMap<>();
+    private final Map<String, Instant> lastStored = new ConcurrentHashMap<>();
+    private final Map<String, Entry> quarantined = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int activeSegment;
+    private FileChannel active;
+    private MappedByteBuffer activeMapping;
+    private int position;
+    private Writer indexWriter;
+    private FileChannel indexChannel;
+
+    public SegmentFileAvatarStorage(@Value("${path.to.avatars.folder}") String avatarsDir,
+                                    @Value("${avatars.storage.segment-max-bytes:268435456}") long segmentMaxBytes)
+            throws IOException {
+        this.dir = Path.of(avatarsDir, SEGMENTS_DIR);
+        this.segmentMaxBytes = (int) Math.min(segmentMaxBytes, Integer.MAX_VALUE);
+        Files.createDirectories(dir);
+        loadIndex();
+    }
+
+    @Override
+    public Stored store(InputStream content, String extension) throws IOException {
+        Path tmp = Files.createTempFile(dir, "upload-", ".tmp");
+        try {
+            AvatarFiles.Copied copied = AvatarFiles.copy(content, tmp, false);
+            if (copied.size() > segmentMaxBytes) {
+                throw new IllegalArgumentException("avatar - is larger than a segment");
+            }
+            Reservation reservation = reserve(copied.hash(), (int) copied.size());
+            if (reservation != null) {
+                write(tmp, reservation);
+                commit(copied.hash(), reservation.entry());
+            }
+            return new Stored(LOCATION_PREFIX + copied.hash(), copied.hash(), copied.size());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Returns the place to write new content at and moves the append position past it, or records the reuse
+     * and returns null if the content is already stored.
+     */
+    private Reservation reserve(String hash, int size) throws IOException {
+        lock.lock();
+        try {
+            if (index.containsKey(hash)) {
+                Instant now = Instant.now();
+                writeIndexRecord(hash + " " + REUSED + " " + now.toEpochMilli());
+                lastStored.put(hash, now);
+                return null;
+            }
+            if (position + size > segmentMaxBytes) {
+                active.close();
+                openSegment(activeSegment + 1);
+            }
+            Reservation reservation = new Reservation(new Entry(activeSegment, position, size), activeMapping);
+            position += size;
+            return reservation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Path tmp, Reservation reservation) throws IOException {
+        Entry entry = reservation.entry();
+        try (FileChannel in = FileChannel.open(tmp, READ)) {
+            ByteBuffer target = reservation.mapping().slice((int) entry.offset(), (int) entry.length());
+            while (target.hasRemaining() && in.read(target) != -1) {
+                // read until the reserved range is filled
+            }
+            reservation.mapping().force((int) entry.offset(), (int) entry.length());
+        } catch (IOException | RuntimeException e) {
+            lock.lock();
+            try {
+                if (activeSegment == entry.segment() && position == entry.offset() + entry.length()) {
+                    position = (int) entry.offset();
+                }
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private void commit(String hash, Entry entry) throws IOException {
+        lock.lock();
+        try {
+            Instant now = Instant.now();
+            lastStored.put(hash, now);
+            // a concurrent upload of the same content may have won; its copy stays unused
+            if (!index.containsKey(hash)) {
+                writeIndexRecord(hash + " " + entry.segment() + " " + entry.offset() + " " + entry.length() + " "
+                        + now.toEpochMilli());
+                index.put(hash, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public InputStream open(String location) throws IOException {
+        if (!isSegment(location)) {
+            return Files.newInputStream(Path.of(location));
+        }
+        return new ByteBufferInputStream(slice(location));
+    }
+
+    @Override
+    public Resource resource(String location) throws IOException {
+        if (!isSegment(location)) {
+            return new FileSystemResource(location);
+        }
+        return new MappedResource(location, slice(location));
+    }
+
+    @Override
+    public boolean exists(String location) {
+        if (!isSegment(location)) {
+            return Files.isRegularFile(Path.of(location));
+        }
+        return index.containsKey(hash(location));
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        if (!isSegment(location)) {
+            Files.deleteIfExists(Path.of(location));
+            return;
+        }
+        lock.lock();
+        try {
+            if (index.remove(hash(location)) != null) {
+                writeIndexRecord(hash(location) + " " + DELETED);
+                lastStored.remove(hash(location));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Stream<String> locations() {
+        return List.copyOf(index.keySet()).stream().map(hash -> LOCATION_PREFIX + hash);
+    }
+
+    @Override
+    public String normalize(String location) {
+        return isSegment(location) ? location : AvatarFiles.relativeTo(dir.getParent(), location);
+    }
+
+    @Override
+    public Instant quarantine(String location) throws IOException {
+        if (!isSegment(location)) {
+            return AvatarFiles.quarantine(Path.of(location));
+        }
+        lock.lock();
+        try {
+            Entry entry = index.remove(hash(location));
+            if (entry == null) {
+                return null;
+            }
+            quarantined.put(hash(location), entry);
+            return lastStored.getOrDefault(hash(location), Instant.EPOCH);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void restore(String location) throws IOException {
+        if (!isSegment(location)) {
+            AvatarFiles.restore(Path.of(location));
+            return;
+        }
+        lock.lock();
+        try {
+            Entry entry = quarantined.remove(hash(location));
+            if (entry != null) {
+                index.putIfAbsent(hash(location), entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long deleteQuarantined(String location) throws IOException {
+        if (!isSegment(location)) {
+            return AvatarFiles.deleteQuarantined(Path.of(location));
+        }
+        lock.lock();
+        try {
+            Entry entry = quarantined.remove(hash(location));
+            if (entry == null) {
+                return 0;
+            }
+            if (!index.containsKey(hash(location))) {
+                writeIndexRecord(hash(location) + " " + DELETED);
+                lastStored.remove(hash(location));
+            }
+            return entry.length();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (active != null) {
+                active.close();
+            }
+            indexWriter.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ByteBuffer slice(String location) throws IOException {
+        Entry entry = index.get(hash(location));
+        if (entry == null) {
+            throw new FileNotFoundException(location);
+        }
+        MappedByteBuffer mapping = mappings.get(entry.segment());
+        if (mapping == null) {
+            mapping = map(entry.segment());
+        }
+        return mapping.slice((int) entry.offset(), (int) entry.length()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Maps a segment that is no longer written to; it cannot grow, so its current size is final.
+     */
+    private MappedByteBuffer map(int segment) throws IOException {
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), READ)) {
+            MappedByteBuffer mapping = mappings.get(segment);
+            if (mapping == null) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                mappings.put(segment, mapping);
+            }
+            return mapping;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        Path indexPath = dir.resolve("index");
+        if (Files.exists(indexPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.US_ASCII)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(" ");
+                    if (parts.length == 2 && DELETED.equals(parts[1])) {
+                        index.remove(parts[0]);
+                        lastStored.remove(parts[0]);
+                    } else if (parts.length == 3 && REUSED.equals(parts[1])) {
+                        lastStored.put(parts[0], Instant.ofEpochMilli(Long.parseLong(parts[2])));
+                    } else if (parts.length >= 4) {
+                        index.put(parts[0], new Entry(Integer.parseInt(parts[1]), Long.parseLong(parts[2]),
+                                Long.parseLong(parts[3])));
+                        if (parts.length == 5) {
+                            lastStored.put(parts[0], Instant.ofEpochMilli(Long.parseLong(parts[4])));
+                        }
+                    }
+                }
+            }
+        }
+        indexChannel = FileChannel.open(indexPath, CREATE, WRITE, APPEND);
+        indexWriter = new OutputStreamWriter(Channels.newOutputStream(indexChannel),
+                StandardCharsets.US_ASCII);
+        for (Map.Entry<String, Entry> stored : index.entrySet()) {
+            if (!lastStored.containsKey(stored.getKey())) {
+                // written before store times were recorded: the segment was last modified no earlier
+                Path segment = segmentPath(stored.getValue().segment());
+                lastStored.put(stored.getKey(), Files.getLastModifiedTime(segment).toInstant());
+            }
+        }
+        openSegment(index.values().stream().mapToInt(Entry::segment).max().orElse(0));
+        position = (int) index.values().stream()
+                .filter(entry -> entry.segment() == activeSegment)
+                .mapToLong(entry -> entry.offset() + entry.length())
+                .max().orElse(0);
+    }
+
+    /**
+     * Opens a segment for appending and maps it read-write at the full segment size, which extends the file
+     * (sparsely, on most file systems) once instead of remapping as it fills up.
+     */
+    private void openSegment(int segment) throws IOException {
+        Path path = segmentPath(segment);
+        boolean created = !Files.exists(path);
+        activeSegment = segment;
+        active = FileChannel.open(path, CREATE, READ, WRITE);
+        activeMapping = active.map(FileChannel.MapMode.READ_WRITE, 0, segmentMaxBytes);
+        mappings.put(segment, activeMapping);
+        position = 0;
+        if (created) {
+            AvatarFiles.forceDirectory(dir);
+        }
+    }
+
+    private void writeIndexRecord(String record) throws IOException {
+        indexWriter.write(record + "\n");
+        indexWriter.flush();
+        indexChannel.force(false);
+    }
+
+    private Path segmentPath(int segment) {
+        return dir.resolve("segment-%05d.dat".formatted(segment));
+    }
+
+    private static boolean isSegment(String location) {
+        return location.startsWith(LOCATION_PREFIX);
+    }
+
+    private static String hash(String location) {
+        return location.substring(LOCATION_PREFIX.length());
+    }
+
+    private record Entry(int segment, long offset, long length) {
+    }
+
+    private record Reservation(Entry entry, MappedByteBuffer mapping) {
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private static class MappedResource extends AbstractResource {
+        private final String location;
+        private final ByteBuffer buffer;
+
+        MappedResource(String location, ByteBuffer buffer) {
+            this.location = location;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.capacity();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteBufferInputStream(buffer.duplicate());
+        }
+
+        @Override
+        public String getDescription() {
+            return "avatar " + location;
+        }
+    }
+}
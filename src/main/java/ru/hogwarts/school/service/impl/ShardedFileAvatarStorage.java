@@ -0,0 +1,129 @@
+package ru.hogwarts.school.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.service.AvatarStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+/**
+ * One file per content hash under {@code <avatars>/<hh>/<hh>/<hash>.<ext>}. Files are written to a temp file
+ * and renamed into place, so readers never see a partial file. With fsync on, the file and then the directories
+ * whose entries changed are forced to disk. Storing content that already exists bumps the file's modification
+ * time, which tells the reconciler the file is in use again.
+ */
+@Component
+@ConditionalOnProperty(name = "avatars.storage.type", havingValue = "sharded", matchIfMissing = true)
+public class ShardedFileAvatarStorage implements AvatarStorage {
+    private final Path root;
+    private final boolean fsync;
+
+    public ShardedFileAvatarStorage(@Value("${path.to.avatars.folder}") String avatarsDir,
+                                    @Value("${avatars.storage.fsync:${avatars.write-behind.enabled:false}}") boolean fsync) {
+        this.root = Path.of(avatarsDir);
+        this.fsync = fsync;
+    }
+
+    @Override
+    public Stored store(InputStream content, String extension) throws IOException {
+        Files.createDirectories(root);
+        Path tmp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            AvatarFiles.Copied copied = AvatarFiles.copy(content, tmp, fsync);
+            Path target = root.resolve(copied.hash().substring(0, 2))
+                    .resolve(copied.hash().substring(2, 4))
+                    .resolve(copied.hash() + "." + extension);
+            if (!reuse(target)) {
+                Path shard = target.getParent();
+                boolean newShard = !Files.isDirectory(shard);
+                Files.createDirectories(shard);
+                Files.move(tmp, target, ATOMIC_MOVE);
+                if (fsync) {
+                    AvatarFiles.forceDirectory(shard);
+                    if (newShard) {
+                        AvatarFiles.forceDirectory(shard.getParent());
+                        AvatarFiles.forceDirectory(root);
+                    }
+                }
+            }
+            return new Stored(target.toString(), copied.hash(), copied.size());
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static boolean reuse(Path target) throws IOException {
+        try {
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public InputStream open(String location) throws IOException {
+        return Files.newInputStream(Path.of(location));
+    }
+
+    @Override
+    public Resource resource(String location) {
+        return new FileSystemResource(location);
+    }
+
+    @Override
+    public boolean exists(String location) {
+        return Files.isRegularFile(Path.of(location));
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        Files.deleteIfExists(Path.of(location));
+    }
+
+    @Override
+    public Stream<String> locations() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        Path previews = root.resolve("previews");
+        Path segments = root.resolve(SegmentFileAvatarStorage.SEGMENTS_DIR);
+        return Files.walk(root)
+                .filter(path -> !path.startsWith(previews) && !path.startsWith(segments))
+                .filter(Files::isRegularFile)
+                .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                .map(Path::toString);
+    }
+
+    @Override
+    public String normalize(String location) {
+        return AvatarFiles.relativeTo(root, location);
+    }
+
+    @Override
+    public Instant quarantine(String location) throws IOException {
+        return AvatarFiles.quarantine(Path.of(location));
+    }
+
+    @Override
+    public void restore(String location) throws IOException {
+        AvatarFiles.restore(Path.of(location));
+    }
+
+    @Override
+    public long deleteQuarantined(String location) throws IOException {
+        return AvatarFiles.deleteQuarantined(Path.of(location));
+    }
+}
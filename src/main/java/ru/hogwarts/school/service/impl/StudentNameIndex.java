@@ -0,0 +1,297 @@
+package ru.hogwarts.school.service.impl;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.repasitory.StudentRepository;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index over student names. Postings are sorted primitive id arrays. Queries of three or more
+ * characters intersect the trigram postings; shorter ones look up names and name words by prefix. Matches are
+ * ranked: exact name, name prefix, word prefix, substring; then shorter names first.
+ * <p>
+ * Changes made inside a transaction are applied after it commits. Changes that land while {@link #rebuild()}
+ * is streaming the table win over the rows it read.
+ */
+@Component
+public class StudentNameIndex {
+    private static final int GRAM = 3;
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, String> names = new HashMap<>();
+    private final Map<String, Posting> grams = new HashMap<>();
+    private final NavigableMap<String, Posting> words = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Set<Long> changedDuringRebuild;
+
+    public StudentNameIndex(StudentRepository studentRepository, PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        locked(() -> changedDuringRebuild = new HashSet<>());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<StudentDto> students = studentRepository.streamAll()) {
+                    students.forEach(student -> locked(() -> {
+                        if (!changedDuringRebuild.contains(student.id())) {
+                            putLocked(student.id(), student.name());
+                        }
+                    }));
+                }
+            });
+        } finally {
+            locked(() -> changedDuringRebuild = null);
+        }
+    }
+
+    public void put(Long id, String name) {
+        afterCommit(() -> {
+            markChanged(id);
+            putLocked(id, name);
+        });
+    }
+
+    public void remove(Long id) {
+        afterCommit(() -> {
+            markChanged(id);
+            removeLocked(id);
+        });
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            locked(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                locked(change);
+            }
+        });
+    }
+
+    private void locked(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markChanged(Long id) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(id);
+        }
+    }
+
+    public List<Long> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Comparator<Match> ranking = Comparator.comparingInt(Match::rank)
+                .thenComparingInt(Match::length)
+                .thenComparingLong(Match::id);
+        PriorityQueue<Match> best = new PriorityQueue<>(ranking.reversed());
+        lock.readLock().lock();
+        try {
+            for (long id : candidates(normalized)) {
+                String name = names.get(id);
+                int rank = rank(name, normalized);
+                if (rank < 0) {
+                    continue;
+                }
+                best.add(new Match(id, rank, name.length()));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(ranking);
+        return matches.stream().map(Match::id).toList();
+    }
+
+    private long[] candidates(String query) {
+        if (query.length() < GRAM) {
+            return prefixCandidates(query);
+        }
+        List<Posting> postings = new ArrayList<>();
+        for (String gram : grams(query)) {
+            Posting posting = grams.get(gram);
+            if (posting == null) {
+                return new long[0];
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Posting::size));
+        Posting smallest = postings.get(0);
+        long[] candidates = new long[smallest.size()];
+        int count = 0;
+        for (int i = 0; i < smallest.size(); i++) {
+            long id = smallest.get(i);
+            boolean inAll = true;
+            for (int j = 1; j < postings.size() && inAll; j++) {
+                inAll = postings.get(j).contains(id);
+            }
+            if (inAll) {
+                candidates[count++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Short queries only match at the start of the name or of one of its words.
+     */
+    private long[] prefixCandidates(String query) {
+        Collection<Posting> postings = words.subMap(query, true, query + Character.MAX_VALUE, false).values();
+        long[] candidates = new long[postings.stream().mapToInt(Posting::size).sum()];
+        int count = 0;
+        for (Posting posting : postings) {
+            for (int i = 0; i < posting.size(); i++) {
+                candidates[count++] = posting.get(i);
+            }
+        }
+        return LongStream.of(candidates).sorted().distinct().toArray();
+    }
+
+    private int rank(String name, String query) {
+        int position = name.indexOf(query);
+        if (position < 0) {
+            return -1;
+        }
+        if (name.length() == query.length()) {
+            return 0;
+        }
+        if (position == 0) {
+            return 1;
+        }
+        return name.contains(" " + query) ? 2 : 3;
+    }
+
+    private void putLocked(Long id, String name) {
+        removeLocked(id);
+        if (name == null) {
+            return;
+        }
+        String normalized = normalize(name);
+        names.put(id, normalized);
+        for (String gram : grams(normalized)) {
+            grams.computeIfAbsent(gram, key -> new Posting()).add(id);
+        }
+        for (String word : words(normalized)) {
+            words.computeIfAbsent(word, key -> new Posting()).add(id);
+        }
+    }
+
+    private void removeLocked(Long id) {
+        String previous = names.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : grams(previous)) {
+            Posting posting = grams.get(gram);
+            if (posting != null && posting.remove(id)) {
+                grams.remove(gram);
+            }
+        }
+        for (String word : words(previous)) {
+            Posting posting = words.get(word);
+            if (posting != null && posting.remove(id)) {
+                words.remove(word);
+            }
+        }
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            result.add(value.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static Set<String> words(String value) {
+        Set<String> result = new HashSet<>(Arrays.asList(value.split("\\s+")));
+        result.remove("");
+        return result;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Match(long id, int rank, int length) {
+    }
+
+    /**
+     * Sorted set of student ids. Ids mostly arrive in ascending order, so adds are appends.
+     */
+    private static final class Posting {
+        private long[] ids = new long[1];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long get(int index) {
+            return ids[index];
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void add(long id) {
+            int at = size > 0 && ids[size - 1] >= id ? Arrays.binarySearch(ids, 0, size, id) : -size - 1;
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        /**
+         * Returns whether the posting is now empty.
+         */
+        boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                size--;
+                if (size < ids.length / 4) {
+                    ids = Arrays.copyOf(ids, Math.max(1, size * 2));
+                }
+            }
+            return size == 0;
+        }
+    }
+}
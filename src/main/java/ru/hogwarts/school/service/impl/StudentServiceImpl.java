@@ -1,62 +1,336 @@
 package ru.hogwarts.school.service.impl;
 
+import io.micrometer.core.annotation.Timed;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.BatchItemResult;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.dto.StudentStats;
+import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.OutboxEvent;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repasitory.AvatarRepository;
 import ru.hogwarts.school.repasitory.StudentRepository;
 import ru.hogwarts.school.service.StudentService;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "school.service", histogram = true)
 public class StudentServiceImpl implements StudentService {
+    static final int MAX_PAGE_SIZE = 500;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     private final StudentRepository studentRepository;
+    private final AvatarRepository avatarRepository;
+    private final StudentNameIndex nameIndex;
+    private final ChangeEventOutbox outbox;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter exportWriter;
 
-    public StudentServiceImpl(StudentRepository studentRepository) {
+    public StudentServiceImpl(StudentRepository studentRepository, AvatarRepository avatarRepository,
+                              StudentNameIndex nameIndex, ChangeEventOutbox outbox,
+                              PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
         this.studentRepository = studentRepository;
+        this.avatarRepository = avatarRepository;
+        this.nameIndex = nameIndex;
+        this.outbox = outbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.exportWriter = objectMapper.writerFor(StudentDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     @Override
+    @CacheEvict(value = {"studentStats", "facultyStats"}, allEntries = true)
+    @Transactional
     public Student create(Student student) {
-        return studentRepository.save(student);
+        student.setId(null);
+        student.setVersion(null);
+        Student saved = studentRepository.save(student);
+        outbox.record(ChangeEventOutbox.STUDENT, saved.getId(), OutboxEvent.Type.CREATED);
+        nameIndex.put(saved.getId(), saved.getName());
+        return saved;
     }
 
     @Override
-    public Student read(Long id) {
-        return studentRepository.findById(id).orElse(null);
+    @Cacheable(value = "students", unless = "#result == null")
+    @Transactional
+    public StudentDto read(Long id) {
+        return studentRepository.findDtoById(id).orElse(null);
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(value = {"students", "studentFaculty"}, key = "#id"),
+            @CacheEvict(value = {"studentStats", "facultyStats"}, allEntries = true)
+    })
+    @Transactional
     public Student update(Long id, Student student) {
         return studentRepository.findById(id).map(studentFromDb -> {
+            if (student.getVersion() != null && !student.getVersion().equals(studentFromDb.getVersion())) {
+                throw staleVersion(id, student.getVersion());
+            }
             studentFromDb.setName(student.getName());
             studentFromDb.setAge(student.getAge());
-            studentRepository.save(studentFromDb);
+            studentRepository.saveAndFlush(studentFromDb);
+            outbox.record(ChangeEventOutbox.STUDENT, id, OutboxEvent.Type.UPDATED);
+            nameIndex.put(id, studentFromDb.getName());
             return studentFromDb;
         }).orElse(null);
     }
 
     @Override
-    public Student delete(Long id) {
-        return studentRepository.findById(id).map(student -> {
-            studentRepository.deleteById(id);
-            return student;
-        }).orElse(null);
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = {"students", "studentFaculty"}, key = "#id"),
+            @CacheEvict(value = {"studentStats", "facultyStats"}, allEntries = true)
+    })
+    public boolean patch(Long id, StudentPatch patch, Long version) {
+        if (studentRepository.patch(id, patch.name(), patch.age(), version) == 0) {
+            return notChanged(id, version);
+        }
+        outbox.record(ChangeEventOutbox.STUDENT, id, OutboxEvent.Type.UPDATED);
+        if (patch.name() != null) {
+            nameIndex.put(id, patch.name());
+        }
+        return true;
+    }
+
+    /**
+     * A conditional statement that touched no rows either hit a missing student or a stale version;
+     * only the stale version is reported as a conflict.
+     */
+    private boolean notChanged(Long id, Long version) {
+        if (version != null && studentRepository.existsById(id)) {
+            throw staleVersion(id, version);
+        }
+        return false;
+    }
+
+    static OptimisticLockingFailureException staleVersion(Long id, Long version) {
+        return new OptimisticLockingFailureException(id + " - version " + version + " is stale");
+    }
+
+    @Override
+    @CacheEvict(value = {"studentStats", "facultyStats"}, allEntries = true)
+    public List<BatchItemResult> createAll(List<Student> students) {
+        return indexNames(students, processInChunks(students, this::createChunk));
+    }
+
+    @Override
+    @CacheEvict(value = {"students", "studentFaculty", "studentStats", "facultyStats"}, allEntries = true)
+    public List<BatchItemResult> updateAll(List<Student> students) {
+        return indexNames(students, processInChunks(students, this::updateChunk));
+    }
+
+    private List<BatchItemResult> indexNames(List<Student> students, List<BatchItemResult> results) {
+        for (BatchItemResult result : results) {
+            if (result.error() == null) {
+                nameIndex.put(result.id(), students.get(result.index()).getName());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs every chunk in its own transaction. When a chunk fails on flush, its items are retried
+     * one per transaction so that only the offending records are reported as failed.
+     */
+    private List<BatchItemResult> processInChunks(List<Student> students,
+                                                  BiFunction<Integer, List<Student>, List<BatchItemResult>> chunkAction) {
+        List<BatchItemResult> results = new ArrayList<>(students.size());
+        for (int from = 0; from < students.size(); from += BATCH_CHUNK_SIZE) {
+            int offset = from;
+            int to = Math.min(from + BATCH_CHUNK_SIZE, students.size());
+            try {
+                results.addAll(transactionTemplate.execute(status -> chunkAction.apply(offset, students.subList(offset, to))));
+            } catch (RuntimeException chunkError) {
+                for (int index = from; index < to; index++) {
+                    int itemIndex = index;
+                    try {
+                        results.addAll(transactionTemplate.execute(status ->
+                                chunkAction.apply(itemIndex, students.subList(itemIndex, itemIndex + 1))));
+                    } catch (RuntimeException e) {
+                        results.add(BatchItemResult.failed(itemIndex, students.get(itemIndex).getId(),
+                                NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private List<BatchItemResult> createChunk(int offset, List<Student> chunk) {
+        List<BatchItemResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Student student = chunk.get(i);
+            String error = validate(student);
+            if (error != null) {
+                results.add(BatchItemResult.failed(offset + i, null, error));
+                continue;
+            }
+            Student newStudent = new Student(null, student.getName(), student.getAge());
+            newStudent.setFaculty(student.getFaculty());
+            Long id = studentRepository.save(newStudent).getId();
+            outbox.record(ChangeEventOutbox.STUDENT, id, OutboxEvent.Type.CREATED);
+            results.add(BatchItemResult.ok(offset + i, id));
+        }
+        return results;
+    }
+
+    private List<BatchItemResult> updateChunk(int offset, List<Student> chunk) {
+        List<Long> ids = chunk.stream().map(Student::getId).filter(Objects::nonNull).toList();
+        Map<Long, Student> studentsFromDb = studentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Student::getId, Function.identity()));
+        List<BatchItemResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Student student = chunk.get(i);
+            Student studentFromDb = student.getId() == null ? null : studentsFromDb.get(student.getId());
+            String error = student.getId() == null ? "id is required"
+                    : studentFromDb == null ? student.getId() + " - is not found"
+                    : student.getVersion() != null && !student.getVersion().equals(studentFromDb.getVersion())
+                    ? staleVersion(student.getId(), student.getVersion()).getMessage()
+                    : validate(student);
+            if (error != null) {
+                results.add(BatchItemResult.failed(offset + i, student.getId(), error));
+                continue;
+            }
+            studentFromDb.setName(student.getName());
+            studentFromDb.setAge(student.getAge());
+            outbox.record(ChangeEventOutbox.STUDENT, studentFromDb.getId(), OutboxEvent.Type.UPDATED);
+            results.add(BatchItemResult.ok(offset + i, studentFromDb.getId()));
+        }
+        return results;
+    }
+
+    private String validate(Student student) {
+        if (student.getName() == null || student.getName().isBlank()) {
+            return "name is required";
+        }
+        if (student.getAge() < 0) {
+            return "age must not be negative";
+        }
+        return null;
+    }
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(value = {"students", "studentFaculty"}, key = "#id"),
+            @CacheEvict(value = {"studentStats", "facultyStats"}, allEntries = true)
+    })
+    @Transactional
+    public boolean delete(Long id, Long version) {
+        // the avatar file and blob are left to AvatarReconciler
+        avatarRepository.deleteByStudentId(id);
+        if (studentRepository.deleteByIdAndVersion(id, version) == 0) {
+            return notChanged(id, version);
+        }
+        outbox.record(ChangeEventOutbox.STUDENT, id, OutboxEvent.Type.DELETED);
+        nameIndex.remove(id);
+        return true;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StudentDto> filterByAge(int age, Long after, int limit) {
+        return studentRepository.findAllByAgeAndIdGreaterThanOrderByIdAsc(age, after == null ? 0 : after, limit(limit));
     }
 
     @Override
-    public List<Student> filterByAge(int age) {
-        return studentRepository.findAllByAge(age);
+    @Transactional(readOnly = true)
+    public List<StudentDto> filterByAge(int age, int page, int limit) {
+        return studentRepository.findAllByAge(age, pageRequest(page, limit));
     }
 
     @Override
-    public List<Student> findAllByAgeBetween(int fromAge, int toAge) {
-        return studentRepository.findAllByAgeBetween(fromAge, toAge);
+    @Transactional(readOnly = true)
+    public List<StudentDto> findAllByAgeBetween(int fromAge, int toAge, Integer afterAge, Long after, int limit) {
+        if (after == null || afterAge == null) {
+            return studentRepository.findAllByAgeBetweenOrderByAgeAscIdAsc(fromAge, toAge, limit(limit));
+        }
+        return studentRepository.findAllByAgeBetweenAfter(fromAge, toAge, afterAge, after, limit(limit));
     }
 
     @Override
-    public Faculty getFacultyStudent(Long studentId) {
+    @Transactional(readOnly = true)
+    public List<StudentDto> findAllByAgeBetween(int fromAge, int toAge, int page, int limit) {
+        return studentRepository.findAllByAgeBetween(fromAge, toAge, pageRequest(page, limit));
+    }
+
+    static Limit limit(int limit) {
+        return Limit.of(Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    static PageRequest pageRequest(int page, int limit) {
+        return PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(limit, MAX_PAGE_SIZE)), Sort.by("age", "id"));
+    }
+
+    @Override
+    @Cacheable(value = "studentFaculty", unless = "#result == null")
+    @Transactional
+    public FacultyDto getFacultyStudent(Long studentId) {
         return studentRepository.findById(studentId)
-                .map(Student::getFaculty).orElse(null);
+                .map(Student::getFaculty).map(FacultyDto::of).orElse(null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportStudents(OutputStream os) throws IOException {
+        OutputStream out = new BufferedOutputStream(os, EXPORT_BUFFER_SIZE);
+        try (Stream<StudentDto> students = studentRepository.streamAll()) {
+            Iterator<StudentDto> iterator = students.iterator();
+            while (iterator.hasNext()) {
+                exportWriter.writeValue(out, iterator.next());
+                out.write('\n');
+            }
+        }
+        out.flush();
+    }
+
+    @Override
+    @Cacheable("studentStats")
+    @Transactional
+    public StudentStats getStats() {
+        return new StudentStats(studentRepository.summarizeAges(),
+                studentRepository.countByAge(),
+                studentRepository.summarizeAgesPerFaculty());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StudentDto> search(String query, int limit) {
+        List<Long> ids = nameIndex.search(query, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        Map<Long, StudentDto> students = studentRepository.findAllByIdIn(ids).stream()
+                .collect(Collectors.toMap(StudentDto::id, Function.identity()));
+        return ids.stream().map(students::get).filter(Objects::nonNull).toList();
     }
 }
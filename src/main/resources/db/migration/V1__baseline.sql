@@ -0,0 +1,79 @@
+-- Schema as previously created by hibernate ddl-auto=update; idempotent so existing databases can adopt it.
+create sequence if not exists avatar_data_seq start with 1 increment by 50;
+create sequence if not exists avatar_seq start with 1 increment by 50;
+create sequence if not exists faculty_seq start with 1 increment by 50;
+create sequence if not exists student_seq start with 1 increment by 50;
+
+create table if not exists faculty (
+    id bigint not null,
+    color varchar(255),
+    name varchar(255),
+    primary key (id)
+);
+
+create table if not exists student (
+    id bigint not null,
+    age integer not null,
+    faculty_id bigint,
+    name varchar(255),
+    primary key (id)
+);
+
+create table if not exists avatar_data (
+    id bigint not null,
+    hash varchar(64) unique,
+    data oid,
+    primary key (id)
+);
+
+create table if not exists avatar (
+    id bigint not null,
+    data_id bigint,
+    file_size bigint not null,
+    last_modified timestamp(6) with time zone,
+    student_id bigint unique,
+    content_hash varchar(255),
+    file_path varchar(255),
+    media_type varchar(255),
+    primary key (id)
+);
+
+-- databases created before the blob moved to avatar_data have the bytes in avatar.data and none of these columns
+alter table avatar add column if not exists data_id bigint;
+alter table avatar add column if not exists content_hash varchar(255);
+alter table avatar add column if not exists last_modified timestamp(6) with time zone;
+
+do $$
+begin
+    if exists (select 1 from information_schema.columns
+               where table_schema = current_schema() and table_name = 'avatar' and column_name = 'data') then
+        insert into avatar_data (id, hash, data)
+        select nextval('avatar_data_seq'), legacy.hash, lo_from_bytea(0, legacy.data)
+        from (select distinct on (encode(sha256(data), 'hex')) encode(sha256(data), 'hex') as hash, data
+              from avatar where data is not null) legacy
+        where not exists (select 1 from avatar_data d where d.hash = legacy.hash);
+        update avatar a set content_hash = d.hash, data_id = d.id
+        from avatar_data d
+        where a.data is not null and a.data_id is null and d.hash = encode(sha256(a.data), 'hex');
+        alter table avatar drop column data;
+    end if;
+end
+$$;
+
+create index if not exists faculty_color_idx on faculty (color);
+create index if not exists student_age_id_idx on student (age, id);
+create index if not exists student_faculty_id_id_idx on student (faculty_id, id);
+
+do $$
+begin
+    if not exists (select 1 from pg_constraint where conname = 'fka8aybiounvqnd7k5v3458eulf') then
+        alter table avatar add constraint FKa8aybiounvqnd7k5v3458eulf foreign key (data_id) references avatar_data;
+    end if;
+    if not exists (select 1 from pg_constraint where conname = 'fkm6mgi7ty5gienen5rege7rc22') then
+        alter table avatar add constraint FKm6mgi7ty5gienen5rege7rc22 foreign key (student_id) references student;
+    end if;
+    if not exists (select 1 from pg_constraint where conname = 'fk6geq7tnjed7u4hvgv1ac6lyh') then
+        alter table student add constraint FK6geq7tnjed7u4hvgv1ac6lyh foreign key (faculty_id) references faculty;
+    end if;
+end
+$$;
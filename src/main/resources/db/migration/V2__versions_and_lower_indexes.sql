@@ -0,0 +1,8 @@
+alter table student add column if not exists version bigint;
+alter table faculty add column if not exists version bigint;
+create index if not exists faculty_lower_name_idx on faculty (lower(name));
+create index if not exists faculty_lower_color_idx on faculty (lower(color));
+update student set version = 0 where version is null;
+update faculty set version = 0 where version is null;
+alter table student alter column version set default 0;
+alter table faculty alter column version set default 0;
@@ -0,0 +1,14 @@
+create sequence if not exists outbox_event_seq start with 1 increment by 50;
+
+create table if not exists outbox_event (
+    id bigint not null,
+    aggregate varchar(255),
+    aggregate_id bigint,
+    type varchar(255) check (type in ('CREATED','UPDATED','DELETED')),
+    created_at timestamp(6) with time zone,
+    published_at timestamp(6) with time zone,
+    primary key (id)
+);
+
+create index if not exists outbox_event_unpublished_idx on outbox_event (id) where published_at is null;
+create index if not exists outbox_event_published_at_idx on outbox_event (published_at);
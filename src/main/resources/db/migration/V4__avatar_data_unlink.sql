@@ -0,0 +1,17 @@
+-- avatar_data.data is a large object: unlink it with the row so removed blobs free their storage.
+create or replace function avatar_data_unlink() returns trigger as $$
+begin
+    if old.data is not null then
+        begin
+            perform lo_unlink(old.data);
+        exception when undefined_object then
+            null;
+        end;
+    end if;
+    return old;
+end;
+$$ language plpgsql;
+
+drop trigger if exists avatar_data_unlink on avatar_data;
+create trigger avatar_data_unlink before delete on avatar_data
+    for each row execute function avatar_data_unlink();
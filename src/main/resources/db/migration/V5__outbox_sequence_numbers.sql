@@ -0,0 +1,19 @@
+-- Outbox ids come from a pooled sequence and are not in commit order. Published events get a gap-free sequence
+-- number instead, handed out under the lock on the single outbox_sequence row.
+alter table outbox_event add column if not exists sequence_number bigint;
+create unique index if not exists outbox_event_sequence_number_idx on outbox_event (sequence_number);
+
+create table if not exists outbox_sequence (
+    id integer not null,
+    last_number bigint not null,
+    primary key (id)
+);
+
+update outbox_event e set sequence_number = numbered.n
+from (select id, row_number() over (order by published_at, id) as n
+      from outbox_event where published_at is not null) numbered
+where e.id = numbered.id and e.sequence_number is null;
+
+insert into outbox_sequence (id, last_number)
+select 1, coalesce(max(sequence_number), 0) from outbox_event
+on conflict (id) do nothing;
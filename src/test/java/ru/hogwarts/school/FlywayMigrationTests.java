@@ -0,0 +1,60 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migrates a schema as the first version of the application left it (created by ddl-auto=update, avatar bytes
+ * in avatar.data) and starts the application on it with Hibernate validating every entity.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIf("ru.hogwarts.school.TestPostgres#available")
+class FlywayMigrationTests {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        TestPostgres.register(registry, "legacy_migration",
+                "create sequence avatar_seq start with 1 increment by 50",
+                "create sequence faculty_seq start with 1 increment by 50",
+                "create sequence student_seq start with 1 increment by 50",
+                "create table faculty (id bigint not null, color varchar(255), name varchar(255), primary key (id))",
+                "create table student (id bigint not null, age integer not null, faculty_id bigint,"
+                        + " name varchar(255), primary key (id))",
+                "create table avatar (id bigint not null, data bytea, file_path varchar(255),"
+                        + " file_size bigint not null, media_type varchar(255), student_id bigint unique,"
+                        + " primary key (id))",
+                "alter table avatar add constraint FKm6mgi7ty5gienen5rege7rc22 foreign key (student_id) references student",
+                "alter table student add constraint FK6geq7tnjed7u4hvgv1ac6lyh foreign key (faculty_id) references faculty",
+                "insert into faculty values (1, 'red', 'Gryffindor')",
+                "insert into student values (1, 11, 1, 'Harry Potter'), (2, 11, 1, 'Ron Weasley'), (3, 11, 1, 'Hermione Granger')",
+                "insert into avatar values (1, 'hedwig', 'avatars/1.jpeg', 6, 'image/jpeg', 1),"
+                        + " (2, 'hedwig', 'avatars/2.jpeg', 6, 'image/jpeg', 2),"
+                        + " (3, 'crookshanks', 'avatars/3.jpeg', 11, 'image/jpeg', 3)");
+    }
+
+    @Test
+    void upgradesTheOriginalSchema() {
+        assertThat(jdbcTemplate.queryForObject("select count(*) from avatar_data", Integer.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from avatar a join avatar_data d on d.id = a.data_id and d.hash = a.content_hash",
+                Integer.class)).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject(
+                "select convert_from(lo_get(d.data), 'UTF8') from avatar a join avatar_data d on d.id = a.data_id"
+                        + " where a.id = 3", String.class)).isEqualTo("crookshanks");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from information_schema.columns"
+                + " where table_schema = current_schema() and table_name = 'avatar' and column_name = 'data'",
+                Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForList("select version from student", Long.class)).containsOnly(0L);
+    }
+}
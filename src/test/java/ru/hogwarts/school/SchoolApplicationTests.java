@@ -1,13 +1,30 @@
 package ru.hogwarts.school;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
+@ActiveProfiles("test")
 class SchoolApplicationTests {
+	@Autowired
+	private ApplicationContext context;
 
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void uploadsHaveTheirOwnExecutor() {
+		assertThat(context.containsBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)).isTrue();
+		assertThat(context.containsBean("avatarUploadExecutor")).isTrue();
+		assertThat(context.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME))
+				.isNotSameAs(context.getBean("avatarUploadExecutor"));
+	}
+
 }
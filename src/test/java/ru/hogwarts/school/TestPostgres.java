@@ -0,0 +1,81 @@
+package ru.hogwarts.school;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * PostgreSQL for the tests that need the real planner or the Flyway migrations: the database given by the
+ * {@code postgres.url} system property (with {@code postgres.username} and {@code postgres.password}), otherwise
+ * a Testcontainers instance. Tests using it are enabled with {@code @EnabledIf("ru.hogwarts.school.TestPostgres#available")},
+ * so a local build without Docker skips them. With {@code -Dpostgres.required=true} or the {@code CI} environment
+ * variable set they always run, and fail when there is no database instead of being skipped.
+ * Every test class works in its own schema, which is dropped and re-created when the context starts.
+ */
+public final class TestPostgres {
+    private static final String URL = System.getProperty("postgres.url");
+    private static final boolean REQUIRED = Boolean.getBoolean("postgres.required") || System.getenv("CI") != null;
+    private static PostgreSQLContainer<?> container;
+
+    private TestPostgres() {
+    }
+
+    public static boolean available() {
+        return URL != null || REQUIRED || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    /**
+     * Points the context at {@code schema}, re-created and filled by the {@code setup} statements, then
+     * migrated by Flyway and validated by Hibernate.
+     */
+    public static void register(DynamicPropertyRegistry registry, String schema, String... setup) {
+        execute("drop schema if exists " + schema + " cascade", "create schema " + schema);
+        String[] statements = new String[setup.length + 1];
+        statements[0] = "set search_path to " + schema;
+        System.arraycopy(setup, 0, statements, 1, setup.length);
+        execute(statements);
+        String url = url();
+        registry.add("spring.datasource.url", () -> url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema);
+        registry.add("spring.datasource.username", TestPostgres::username);
+        registry.add("spring.datasource.password", TestPostgres::password);
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    public static void execute(String... statements) {
+        try (Connection connection = DriverManager.getConnection(url(), username(), password());
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+        }
+        return container;
+    }
+
+    private static String url() {
+        return URL != null ? URL : container().getJdbcUrl();
+    }
+
+    private static String username() {
+        return URL != null ? System.getProperty("postgres.username", "postgres") : container().getUsername();
+    }
+
+    private static String password() {
+        return URL != null ? System.getProperty("postgres.password", "") : container().getPassword();
+    }
+}
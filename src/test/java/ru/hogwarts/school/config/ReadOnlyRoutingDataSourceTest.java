@@ -0,0 +1,69 @@
+package ru.hogwarts.school.config;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadOnlyRoutingDataSourceTest {
+    private final DataSource primary = database("primary");
+    private final DataSource replica = database("replica");
+    private final ReadOnlyRoutingDataSource routing = new ReadOnlyRoutingDataSource(primary, replica);
+
+    @BeforeEach
+    void setUp() {
+        routing.afterPropertiesSet();
+    }
+
+    @Test
+    void routesOnTransactionReadOnlyFlag() {
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReadOnlyRoutingDataSource.PRIMARY);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReadOnlyRoutingDataSource.REPLICA);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+
+    @Test
+    void readOnlyJpaTransactionsReachReplicaThroughLazyProxy() {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(new LazyConnectionDataSourceProxy(routing));
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setPackagesToScan(getClass().getPackageName());
+        factory.afterPropertiesSet();
+        try {
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(factory.getObject());
+            TransactionTemplate transactionTemplate = new TransactionTemplate(new JpaTransactionManager(factory.getObject()));
+
+            String readWrite = transactionTemplate.execute(status -> databaseName(entityManager));
+            transactionTemplate.setReadOnly(true);
+            String readOnly = transactionTemplate.execute(status -> databaseName(entityManager));
+
+            assertThat(readWrite).isEqualTo("PRIMARY");
+            assertThat(readOnly).isEqualTo("REPLICA");
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    private static String databaseName(EntityManager entityManager) {
+        return (String) entityManager.createNativeQuery("select database()").getSingleResult();
+    }
+
+    private static DataSource database(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
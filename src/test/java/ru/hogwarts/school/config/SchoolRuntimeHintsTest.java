@@ -0,0 +1,30 @@
+package ru.hogwarts.school.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchoolRuntimeHintsTest {
+
+    @Test
+    void registersEntitiesAndDtoConstructors() {
+        RuntimeHints hints = new RuntimeHints();
+        new SchoolRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.reflection().onType(Student.class)
+                .withMemberCategories(MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(Faculty.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(Avatar.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(StudentDto.class)
+                .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS))
+                .accepts(hints);
+    }
+}
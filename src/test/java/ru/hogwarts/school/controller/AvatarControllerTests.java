@@ -0,0 +1,88 @@
+package ru.hogwarts.school.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repasitory.AvatarRepository;
+import ru.hogwarts.school.repasitory.StudentRepository;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AvatarControllerTests {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private AvatarService avatarService;
+    @Autowired
+    private StudentService studentService;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private AvatarRepository avatarRepository;
+
+    private Avatar avatar;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Student student = studentService.create(new Student(null, "Luna", 14));
+        avatar = avatarService.uploadAvatar(student.getId(), new MockMultipartFile("avatar", "luna.jpeg",
+                "image/jpeg", "nargles and wrackspurts".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        avatarRepository.deleteAll();
+        studentRepository.deleteAll();
+    }
+
+    @Test
+    void countsTheFileBytesThatWereSent() throws Exception {
+        double before = servedFromFile();
+
+        mockMvc.perform(get("/avatars/{id}/avatar-from-file", avatar.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("nargles and wrackspurts"));
+        mockMvc.perform(get("/avatars/{id}/avatar-from-file", avatar.getId()).header(HttpHeaders.RANGE, "bytes=0-6"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("nargles"));
+
+        assertThat(servedFromFile() - before).isEqualTo(23 + 7);
+    }
+
+    @Test
+    void answersPreviewRevalidationWithoutDecodingTheImage() throws Exception {
+        String etag = "\"" + avatar.getContentHash() + "-128\"";
+
+        mockMvc.perform(get("/avatars/{id}/preview", avatar.getId()).param("size", "100")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    private double servedFromFile() {
+        return meterRegistry.get("avatar.bytes.served").tag("source", "file").counter().count();
+    }
+}
@@ -0,0 +1,81 @@
+package ru.hogwarts.school.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repasitory.FacultyRepository;
+import ru.hogwarts.school.repasitory.StudentRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ContentNegotiationTests {
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    private Faculty faculty;
+
+    @BeforeEach
+    void setUp() {
+        faculty = new Faculty(0, "Ravenclaw", "blue");
+        faculty.setId(null);
+        faculty = facultyRepository.save(faculty);
+        for (int i = 0; i < 3; i++) {
+            Student student = new Student(null, "Student " + i, 14);
+            student.setFaculty(faculty);
+            studentRepository.save(student);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        studentRepository.deleteAll();
+        facultyRepository.deleteAll();
+    }
+
+    @Test
+    void listsAreLeanProjectionsInJson() throws Exception {
+        mockMvc.perform(get("/faculties/{id}/students", faculty.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].facultyId").value(faculty.getId()))
+                .andExpect(jsonPath("$[0].faculty").doesNotExist());
+    }
+
+    @Test
+    void listsNegotiateCborAndSmile() throws Exception {
+        assertThat(fetch(MediaType.APPLICATION_CBOR, new CBORMapper()))
+                .hasSize(3)
+                .allSatisfy(student -> assertThat(student.facultyId()).isEqualTo(faculty.getId()));
+        assertThat(fetch(SMILE, new SmileMapper())).hasSize(3);
+    }
+
+    private StudentDto[] fetch(MediaType mediaType, ObjectMapper mapper) throws Exception {
+        byte[] body = mockMvc.perform(get("/students").param("age", "14").accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn().getResponse().getContentAsByteArray();
+        return mapper.readValue(body, StudentDto[].class);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.hogwarts.school.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ETagsTest {
+
+    @Test
+    void matchesOnlyStrongTags() {
+        assertThat(ETags.version("\"3\"")).isEqualTo(3L);
+        assertThat(ETags.version(" \"3\" ")).isEqualTo(3L);
+        assertThat(ETags.version("W/\"3\"")).isEqualTo(-1L);
+        assertThat(ETags.version("3")).isEqualTo(-1L);
+        assertThat(ETags.version("\"three\"")).isEqualTo(-1L);
+    }
+
+    @Test
+    void treatsMissingAndAnyAsUnconditional() {
+        assertThat(ETags.version(null)).isNull();
+        assertThat(ETags.version(" ")).isNull();
+        assertThat(ETags.version("*")).isNull();
+    }
+
+    @Test
+    void rejectsLists() {
+        assertThatThrownBy(() -> ETags.version("\"2\", \"3\""))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(400));
+    }
+}
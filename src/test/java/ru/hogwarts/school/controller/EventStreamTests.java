@@ -0,0 +1,158 @@
+package ru.hogwarts.school.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.hogwarts.school.model.OutboxEvent;
+import ru.hogwarts.school.model.OutboxSequence;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repasitory.OutboxEventRepository;
+import ru.hogwarts.school.repasitory.OutboxSequenceRepository;
+import ru.hogwarts.school.repasitory.StudentRepository;
+import ru.hogwarts.school.service.impl.EventServiceImpl;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EventStreamTests {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EventServiceImpl eventService;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private OutboxSequenceRepository outboxSequenceRepository;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        studentRepository.deleteAll();
+        outboxEventRepository.deleteAll();
+    }
+
+    @Test
+    void resumedSubscriberReceivesPublishedAndLiveEvents() throws Exception {
+        eventService.publish();
+        long cursor = lastSequenceNumber();
+        Student student = create("Harry");
+        eventService.publish();
+
+        MvcResult stream = mockMvc.perform(get("/events").header("Last-Event-ID", cursor))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(patch("/students/{id}", student.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\": 12}"))
+                .andExpect(status().isNoContent());
+        eventService.publish();
+
+        String body = awaitBody(stream, "event:student.updated");
+        assertThat(body).containsSubsequence(
+                "event:student.created", "\"aggregateId\":" + student.getId(),
+                "event:student.updated", "\"aggregateId\":" + student.getId());
+        assertThat(outboxEventRepository.findAll()).allMatch(e -> e.getPublishedAt() != null);
+    }
+
+    @Test
+    void liveSubscriberReceivesEventsPublishedByAnotherInstance() throws Exception {
+        eventService.publish();
+        MvcResult stream = mockMvc.perform(get("/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        long cursor = lastSequenceNumber();
+        Student harry = create("Harry");
+        Student ron = create("Ron");
+
+        EventServiceImpl otherInstance = new EventServiceImpl(outboxEventRepository, outboxSequenceRepository,
+                transactionManager, new SimpleMeterRegistry(), 500, Duration.ofMinutes(1), Duration.ofMinutes(1),
+                Duration.ofHours(1), 10, Duration.ofMinutes(1));
+        try {
+            otherInstance.publish();
+        } finally {
+            otherInstance.shutdown();
+        }
+        eventService.publish();
+
+        String body = awaitBody(stream, "\"aggregateId\":" + ron.getId());
+        assertThat(body).containsSubsequence(
+                "id:" + (cursor + 1), "\"aggregateId\":" + harry.getId(),
+                "id:" + (cursor + 2), "\"aggregateId\":" + ron.getId());
+        assertThat(outboxEventRepository.findAll()).extracting(OutboxEvent::getSequenceNumber)
+                .containsAll(List.of(cursor + 1, cursor + 2));
+    }
+
+    @Test
+    void resumeFromExpiredEventsStartsWithReset() throws Exception {
+        create("Neville");
+        eventService.publish();
+        long expired = lastSequenceNumber();
+        outboxEventRepository.deleteAll();
+        create("Luna");
+        eventService.publish();
+
+        MvcResult stream = mockMvc.perform(get("/events").header("Last-Event-ID", expired - 1))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        Student ginny = create("Ginny");
+        eventService.publish();
+
+        String body = awaitBody(stream, "\"aggregateId\":" + ginny.getId());
+        assertThat(body).containsSubsequence("id:" + (expired + 1), "event:reset",
+                "id:" + (expired + 2), "event:student.created", "\"aggregateId\":" + ginny.getId());
+    }
+
+    @Test
+    void rejectedChangeWritesNoEvent() throws Exception {
+        Student student = create("Ron");
+        long events = outboxEventRepository.count();
+
+        mockMvc.perform(delete("/students/{id}", student.getId()).header(HttpHeaders.IF_MATCH, "\"7\""))
+                .andExpect(status().isPreconditionFailed());
+        assertThat(outboxEventRepository.count()).isEqualTo(events);
+    }
+
+    private long lastSequenceNumber() {
+        return outboxSequenceRepository.findById(OutboxSequence.ID).map(OutboxSequence::getLastNumber).orElse(0L);
+    }
+
+    /**
+     * Events are sent from the subscriber's own thread, so the response fills in asynchronously.
+     */
+    private String awaitBody(MvcResult stream, String expected) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        String body = stream.getResponse().getContentAsString();
+        while (!body.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            body = stream.getResponse().getContentAsString();
+        }
+        return body;
+    }
+
+    private Student create(String name) throws Exception {
+        mockMvc.perform(post("/students")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"" + name + "\", \"age\": 11}"))
+                .andExpect(status().isOk());
+        return studentRepository.findAll().stream().filter(s -> s.getName().equals(name)).findFirst().orElseThrow();
+    }
+}
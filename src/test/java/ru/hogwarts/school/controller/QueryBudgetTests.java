@@ -0,0 +1,182 @@
+package ru.hogwarts.school.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repasitory.FacultyRepository;
+import ru.hogwarts.school.repasitory.StudentRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics = true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class QueryBudgetTests {
+    private static final int STUDENTS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private FacultyRepository facultyRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Faculty faculty;
+    private Student student;
+
+    @BeforeEach
+    void setUp() {
+        faculty = saveFaculty("Gryffindor");
+        for (int i = 0; i < STUDENTS; i++) {
+            Student newStudent = new Student(null, "Student " + i, 12);
+            newStudent.setFaculty(i % 2 == 0 ? faculty : saveFaculty("Faculty " + i));
+            student = studentRepository.save(newStudent);
+        }
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private Faculty saveFaculty(String name) {
+        Faculty newFaculty = new Faculty(0, name, "red");
+        newFaculty.setId(null);
+        return facultyRepository.save(newFaculty);
+    }
+
+    @AfterEach
+    void tearDown() {
+        studentRepository.deleteAll();
+        facultyRepository.deleteAll();
+    }
+
+    @Test
+    void filterByAgeUsesSingleQuery() throws Exception {
+        mockMvc.perform(get("/students").param("age", "12").param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(STUDENTS));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void ageBetweenPageUsesSingleQuery() throws Exception {
+        // the cursor stays valid after the student it points at is gone
+        studentRepository.deleteById(student.getId() - 5);
+        statistics.clear();
+        mockMvc.perform(get("/students/betweenByAge").param("fromAge", "10").param("toAge", "15")
+                        .param("afterAge", "12").param("after", String.valueOf(student.getId() - 5)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void facultyStudentsUsesSingleQuery() throws Exception {
+        mockMvc.perform(get("/faculties/{id}/students", faculty.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(STUDENTS / 2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void studentFacultyUsesSingleQuery() throws Exception {
+        mockMvc.perform(get("/students/{id}/faculty", student.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").isNotEmpty());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void readStudentIsServedFromCacheOnSecondCall() throws Exception {
+        mockMvc.perform(get("/students/{id}", student.getId())).andExpect(status().isOk());
+        mockMvc.perform(get("/students/{id}", student.getId())).andExpect(status().isOk());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedWriteKeepsCachedRead() throws Exception {
+        mockMvc.perform(get("/students/{id}", student.getId())).andExpect(status().isOk());
+        mockMvc.perform(patch("/students/{id}", student.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"7\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\": 13}"))
+                .andExpect(status().isPreconditionFailed());
+        assertThat(cacheManager.getCache("students").get(student.getId()))
+                .isNotNull()
+                .extracting(Cache.ValueWrapper::get)
+                .isInstanceOf(StudentDto.class);
+    }
+
+    @Test
+    void statsAreAggregatedInDatabaseAndCached() throws Exception {
+        mockMvc.perform(get("/students/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.count").value(STUDENTS))
+                .andExpect(jsonPath("$.ageHistogram[0].count").value(STUDENTS));
+        mockMvc.perform(get("/students/stats")).andExpect(status().isOk());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void patchIsSingleConditionalUpdate() throws Exception {
+        mockMvc.perform(patch("/students/{id}", student.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\": 13}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+        // the conditional update, the outbox insert and at most one sequence fetch
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(studentRepository.findById(student.getId())).get()
+                .extracting(Student::getAge, Student::getName).containsExactly(13, student.getName());
+    }
+
+    @Test
+    void staleIfMatchIsRejected() throws Exception {
+        mockMvc.perform(patch("/students/{id}", student.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"7\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Peeves\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/students/{id}", student.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"7\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Peeves\", \"age\": 12}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/students/{id}", student.getId()).header(HttpHeaders.IF_MATCH, "\"7\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/students/{id}", -1L)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deleteDoesNotLoadStudent() throws Exception {
+        mockMvc.perform(delete("/students/{id}", student.getId()).header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isNoContent());
+        // avatar delete, conditional student delete, outbox insert and at most one sequence fetch
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(studentRepository.existsById(student.getId())).isFalse();
+    }
+}
@@ -0,0 +1,88 @@
+package ru.hogwarts.school.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvatarRateLimitFilterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectsClientOverItsBucketWithRetryAfter() throws Exception {
+        AvatarRateLimitFilter filter = filter(2, 1000, 1, 1, 1024);
+
+        assertThat(download(filter, "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(download(filter, "10.0.0.1").getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = download(filter, "10.0.0.1");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(rejected.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(999L, 1000L);
+        assertThat(download(filter, "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void shedsGlobalOverflowWithServiceUnavailable() throws Exception {
+        AvatarRateLimitFilter filter = filter(10, 1, 1, 1, 1024);
+
+        assertThat(download(filter, "10.0.0.1").getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = download(filter, "10.0.0.2");
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isNotNull();
+    }
+
+    @Test
+    void holdsUploadPermitUntilAsyncCompletes() throws Exception {
+        AvatarRateLimitFilter filter = filter(10, 1000, 1, 1, 1024);
+        AtomicReference<AsyncContext> async = new AtomicReference<>();
+
+        MockHttpServletRequest first = upload(100);
+        filter.doFilter(first, new MockHttpServletResponse(), (request, response) ->
+                async.set(request.startAsync()));
+        MockHttpServletResponse busy = new MockHttpServletResponse();
+        filter.doFilter(upload(100), busy, new MockFilterChain());
+        assertThat(busy.getStatus()).isEqualTo(503);
+
+        async.get().complete();
+        MockHttpServletResponse accepted = new MockHttpServletResponse();
+        filter.doFilter(upload(100), accepted, new MockFilterChain());
+        assertThat(accepted.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void rejectsOversizedUploadBeforeReadingIt() throws Exception {
+        AvatarRateLimitFilter filter = filter(10, 1000, 1, 1, 1024);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(upload(4096), response, new MockFilterChain());
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(meterRegistry.counter("avatar.requests.rejected", "reason", "too_large").count()).isEqualTo(1);
+    }
+
+    private AvatarRateLimitFilter filter(long clientCapacity, long globalCapacity,
+                                         int uploads, int downloads, long maxRequestBytes) {
+        return new AvatarRateLimitFilter(meterRegistry, clientCapacity, 0.001, globalCapacity, 0.001,
+                uploads, downloads, 10 * maxRequestBytes, maxRequestBytes);
+    }
+
+    private static MockHttpServletResponse download(AvatarRateLimitFilter filter, String client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/avatars/1/avatar-from-file");
+        request.setRemoteAddr(client);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest upload(int size) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/avatars/1/avatar");
+        request.setContent(new byte[size]);
+        request.setAsyncSupported(true);
+        return request;
+    }
+}
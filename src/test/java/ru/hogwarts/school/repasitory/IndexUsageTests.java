@@ -0,0 +1,130 @@
+package ru.hogwarts.school.repasitory;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.TestPostgres;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the SQL Hibernate generates for the finders can use the indexes from db/migration on PostgreSQL.
+ * The statements are captured by a {@link StatementInspector}, prepared and explained as generic plans with
+ * sequential scans disabled, so the result does not depend on table sizes or parameter values.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIf("ru.hogwarts.school.TestPostgres#available")
+class IndexUsageTests {
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private FacultyRepository facultyRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        TestPostgres.register(registry, "index_usage");
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                CapturingInspector.class::getName);
+    }
+
+    @Test
+    void ageKeysetUsesAgeIdIndex() {
+        assertThat(explain(() -> studentRepository.findAllByAgeAndIdGreaterThanOrderByIdAsc(12, 0, Limit.of(50))))
+                .contains("student_age_id_idx");
+    }
+
+    @Test
+    void ageBetweenKeysetUsesAgeIdIndex() {
+        assertThat(explain(() -> studentRepository.findAllByAgeBetweenAfter(10, 20, 12, 0, Limit.of(50))))
+                .contains("student_age_id_idx");
+    }
+
+    @Test
+    void facultyStudentsUseFacultyIdIndex() {
+        assertThat(explain(() -> studentRepository.findAllByFacultyIdAndIdGreaterThanOrderByIdAsc(1L, 0, Limit.of(50))))
+                .contains("student_faculty_id_id_idx");
+    }
+
+    @Test
+    void findAlByColorUsesColorIndex() {
+        assertThat(explain(() -> facultyRepository.findAlByColor("red")))
+                .contains("faculty_color_idx");
+    }
+
+    @Test
+    void findByColorOrNameIgnoreCaseUsesLowerIndexes() {
+        assertThat(explain(() -> facultyRepository.findByColorOrNameIgnoreCase("Gryffindor", "red")))
+                .contains("faculty_lower_name_idx", "faculty_lower_color_idx");
+    }
+
+    private String explain(Runnable query) {
+        CapturingInspector.statements.clear();
+        CapturingInspector.thread = Thread.currentThread();
+        try {
+            query.run();
+        } finally {
+            CapturingInspector.thread = null;
+        }
+        assertThat(CapturingInspector.statements).hasSize(1);
+        String sql = CapturingInspector.statements.get(0);
+        int parameters = (int) sql.chars().filter(c -> c == '?').count();
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute("set local enable_seqscan = off");
+            jdbcTemplate.execute("set local plan_cache_mode = force_generic_plan");
+            jdbcTemplate.execute("prepare finder as " + numberParameters(sql));
+            try {
+                return String.join("\n", jdbcTemplate.queryForList("explain execute finder("
+                        + String.join(", ", Collections.nCopies(parameters, "null")) + ")", String.class));
+            } finally {
+                jdbcTemplate.execute("deallocate finder");
+            }
+        });
+    }
+
+    /**
+     * Rewrites JDBC {@code ?} placeholders into the {@code $n} form of a prepared statement.
+     */
+    private static String numberParameters(String sql) {
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+        static volatile Thread thread;
+
+        @Override
+        public String inspect(String sql) {
+            if (Thread.currentThread() == thread) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.hogwarts.school.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repasitory.AvatarDataRepository;
+import ru.hogwarts.school.repasitory.AvatarRepository;
+import ru.hogwarts.school.repasitory.StudentRepository;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "avatars.write-behind.enabled=true")
+@ActiveProfiles("test")
+class AvatarDataWriterTest {
+    @Autowired
+    private AvatarService avatarService;
+    @Autowired
+    private StudentService studentService;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private AvatarRepository avatarRepository;
+    @Autowired
+    private AvatarDataRepository avatarDataRepository;
+
+    @AfterEach
+    void tearDown() {
+        avatarRepository.deleteAll();
+        studentRepository.deleteAll();
+        avatarDataRepository.deleteAll();
+    }
+
+    @Test
+    void writesQueuedBlobsOncePerHash() throws Exception {
+        upload("Fred", "twin");
+        upload("George", "twin");
+        upload("Percy", "prefect");
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!avatarRepository.findWithoutDataAfter(0, Limit.of(1)).isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertThat(avatarRepository.findWithoutDataAfter(0, Limit.of(10))).isEmpty();
+        assertThat(avatarDataRepository.count()).isEqualTo(2);
+    }
+
+    private void upload(String name, String content) throws Exception {
+        Student student = studentService.create(new Student(null, name, 15));
+        avatarService.uploadAvatar(student.getId(), new MockMultipartFile("avatar", name + ".jpeg",
+                "image/jpeg", content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,42 @@
+package ru.hogwarts.school.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.hogwarts.school.dto.AvatarPreview;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvatarPreviewCacheTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void boundsPreviewFilesOnDisk() throws IOException {
+        AvatarPreviewCache cache = new AvatarPreviewCache(dir.toString(), 0, 2);
+        for (long id = 1; id <= 3; id++) {
+            cache.put(id, new AvatarPreview("hash" + id, 64, "image/png", new byte[]{(byte) id}), "png");
+        }
+
+        try (Stream<Path> files = Files.list(dir.resolve("previews"))) {
+            assertThat(files.count()).isEqualTo(2);
+        }
+        AvatarPreview hit = cache.get(3L, "hash3", 64);
+        assertThat(hit).isNotNull();
+        assertThat(hit.data()).containsExactly(3);
+    }
+
+    @Test
+    void reloadsIndexFromDisk() throws IOException {
+        new AvatarPreviewCache(dir.toString(), 1024, 10)
+                .put(1L, new AvatarPreview("hedwig", 128, "image/jpeg", new byte[]{7}), "jpg");
+
+        AvatarPreview preview = new AvatarPreviewCache(dir.toString(), 1024, 10).get(1L, "hedwig", 128);
+        assertThat(preview).isNotNull();
+        assertThat(preview.mediaType()).isEqualTo("image/jpeg");
+    }
+}
@@ -0,0 +1,123 @@
+package ru.hogwarts.school.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repasitory.AvatarDataRepository;
+import ru.hogwarts.school.repasitory.AvatarRepository;
+import ru.hogwarts.school.repasitory.StudentRepository;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.AvatarStorage;
+import ru.hogwarts.school.service.StudentService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AvatarReconcilerTest {
+    @Autowired
+    private AvatarReconciler reconciler;
+    @Autowired
+    private AvatarService avatarService;
+    @Autowired
+    private StudentService studentService;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private AvatarRepository avatarRepository;
+    @Autowired
+    private AvatarDataRepository avatarDataRepository;
+    @Autowired
+    private AvatarStorage avatarStorage;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${path.to.avatars.folder}")
+    private String avatarsDir;
+
+    @AfterEach
+    void tearDown() {
+        avatarRepository.deleteAll();
+        studentRepository.deleteAll();
+        avatarDataRepository.deleteAll();
+    }
+
+    @Test
+    void removesOrphansOnlyWhenSeenTwice() throws Exception {
+        Avatar kept = upload("Hermione", "owl");
+        Avatar removed = upload("Neville", "toad");
+        Path legacy = Files.writeString(Path.of(avatarsDir).resolve("999.jpeg"), "stale");
+
+        studentService.delete(removed.getStudent().getId(), null);
+        assertThat(avatarRepository.existsById(removed.getId())).isFalse();
+
+        reconciler.reconcile();
+        assertThat(legacy).exists();
+        assertThat(Path.of(removed.getFilePath())).exists();
+
+        reconciler.reconcile();
+        assertThat(legacy).doesNotExist();
+        assertThat(Path.of(removed.getFilePath())).doesNotExist();
+        assertThat(Path.of(kept.getFilePath())).exists();
+        assertThat(avatarDataRepository.findByHash(removed.getContentHash())).isEmpty();
+        assertThat(avatarDataRepository.findByHash(kept.getContentHash())).isPresent();
+    }
+
+    @Test
+    void reportsFilesThatNoLongerMatchTheirAvatar() throws Exception {
+        Avatar avatar = upload("Luna", "hare");
+        double before = meterRegistry.counter("avatar.reconciler.mismatch", "reason", "size").count();
+
+        Files.writeString(Path.of(avatar.getFilePath()), "crumple-horned snorkack");
+        reconciler.reconcile();
+
+        assertThat(meterRegistry.counter("avatar.reconciler.mismatch", "reason", "size").count())
+                .isEqualTo(before + 1);
+        assertThat(Path.of(avatar.getFilePath())).exists();
+    }
+
+    @Test
+    void keepsAnOrphanReusedByAnUploadThatHasNotCommitted() throws Exception {
+        Avatar removed = upload("Dean", "ferret");
+        studentService.delete(removed.getStudent().getId(), null);
+        reconciler.reconcile();
+
+        AvatarStorage.Stored reused = avatarStorage.store(
+                new ByteArrayInputStream("ferret".getBytes(StandardCharsets.UTF_8)), "jpeg");
+        assertThat(reused.location()).isEqualTo(removed.getFilePath());
+        reconciler.reconcile();
+
+        assertThat(Path.of(removed.getFilePath())).exists();
+        reconciler.reconcile();
+        assertThat(Path.of(removed.getFilePath())).doesNotExist();
+    }
+
+    @Test
+    void matchesFilesReferencedUnderAnotherSpellingOfTheRoot() throws Exception {
+        Avatar avatar = upload("Seamus", "fire");
+        avatar.setFilePath(Path.of(avatar.getFilePath()).toAbsolutePath().toString());
+        avatarRepository.save(avatar);
+
+        reconciler.reconcile();
+        reconciler.reconcile();
+
+        assertThat(Path.of(avatar.getFilePath())).exists();
+    }
+
+    private Avatar upload(String name, String content) throws Exception {
+        Student student = studentService.create(new Student(null, name, 12));
+        return avatarService.uploadAvatar(student.getId(), new MockMultipartFile("avatar", name + ".jpeg",
+                "image/jpeg", content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
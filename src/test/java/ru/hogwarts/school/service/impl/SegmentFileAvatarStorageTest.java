@@ -0,0 +1,162 @@
+package ru.hogwarts.school.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.hogwarts.school.service.AvatarStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentFileAvatarStorageTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesDeduplicatesAndRollsSegments() throws IOException {
+        SegmentFileAvatarStorage storage = new SegmentFileAvatarStorage(dir.toString(), 12);
+        AvatarStorage.Stored first = storage.store(content("hedwig"), "png");
+        AvatarStorage.Stored again = storage.store(content("hedwig"), "png");
+        AvatarStorage.Stored second = storage.store(content("crookshanks"), "png");
+
+        assertThat(again).isEqualTo(first);
+        assertThat(read(storage, first.location())).isEqualTo("hedwig");
+        assertThat(read(storage, second.location())).isEqualTo("crookshanks");
+        assertThat(storage.resource(second.location()).contentLength()).isEqualTo(11);
+        assertThat(storage.locations()).containsExactlyInAnyOrder(first.location(), second.location());
+        assertThat(dir.resolve("segments/segment-00001.dat")).exists();
+        storage.close();
+    }
+
+    @Test
+    void reloadsIndexAndHonoursDeletes() throws IOException {
+        SegmentFileAvatarStorage storage = new SegmentFileAvatarStorage(dir.toString(), 1024);
+        AvatarStorage.Stored kept = storage.store(content("scabbers"), "png");
+        AvatarStorage.Stored deleted = storage.store(content("trevor"), "png");
+        storage.delete(deleted.location());
+        storage.close();
+
+        SegmentFileAvatarStorage reopened = new SegmentFileAvatarStorage(dir.toString(), 1024);
+        assertThat(reopened.exists(kept.location())).isTrue();
+        assertThat(reopened.exists(deleted.location())).isFalse();
+        assertThat(read(reopened, kept.location())).isEqualTo("scabbers");
+        reopened.close();
+    }
+
+    @Test
+    void quarantinedEntryIsStoredAnewAndSurvivesItsDeletion() throws IOException {
+        SegmentFileAvatarStorage storage = new SegmentFileAvatarStorage(dir.toString(), 1024);
+        AvatarStorage.Stored orphan = storage.store(content("errol"), "png");
+        AvatarStorage.Stored restored = storage.store(content("hermes"), "png");
+
+        assertThat(storage.quarantine(orphan.location())).isNotNull();
+        assertThat(storage.exists(orphan.location())).isFalse();
+        storage.store(content("errol"), "png");
+        assertThat(storage.deleteQuarantined(orphan.location())).isEqualTo(5);
+        storage.quarantine(restored.location());
+        storage.restore(restored.location());
+        storage.close();
+
+        SegmentFileAvatarStorage reopened = new SegmentFileAvatarStorage(dir.toString(), 1024);
+        assertThat(read(reopened, orphan.location())).isEqualTo("errol");
+        assertThat(read(reopened, restored.location())).isEqualTo("hermes");
+        reopened.close();
+    }
+
+    @Test
+    void startsTheNextSegmentWhenAnUploadDoesNotFit() throws IOException {
+        SegmentFileAvatarStorage storage = new SegmentFileAvatarStorage(dir.toString(), 100_000);
+        byte[] small = bytes(30_000, 1);
+        byte[] large = bytes(80_000, 2);
+        AvatarStorage.Stored first = storage.store(new ByteArrayInputStream(small), "png");
+        AvatarStorage.Stored second = storage.store(new ByteArrayInputStream(large), "png");
+
+        assertThat(second.size()).isEqualTo(large.length);
+        try (InputStream is = storage.open(first.location())) {
+            assertThat(is.readAllBytes()).isEqualTo(small);
+        }
+        try (InputStream is = storage.open(second.location())) {
+            assertThat(is.readAllBytes()).isEqualTo(large);
+        }
+        storage.close();
+
+        SegmentFileAvatarStorage reopened = new SegmentFileAvatarStorage(dir.toString(), 100_000);
+        try (InputStream is = reopened.open(second.location())) {
+            assertThat(is.readAllBytes()).isEqualTo(large);
+        }
+        AvatarStorage.Stored third = reopened.store(content("pigwidgeon"), "png");
+        assertThat(read(reopened, third.location())).isEqualTo("pigwidgeon");
+        try (InputStream is = reopened.open(second.location())) {
+            assertThat(is.readAllBytes()).isEqualTo(large);
+        }
+        reopened.close();
+    }
+
+    @Test
+    void storesConcurrentUploadsIntoSeparateRanges() throws Exception {
+        SegmentFileAvatarStorage storage = new SegmentFileAvatarStorage(dir.toString(), 200_000);
+        List<byte[]> contents = IntStream.range(0, 16).mapToObj(i -> bytes(20_000, i)).toList();
+        List<AvatarStorage.Stored> stored;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<AvatarStorage.Stored>> futures = new ArrayList<>();
+            for (byte[] content : contents) {
+                futures.add(executor.submit(() -> storage.store(new ByteArrayInputStream(content), "png")));
+            }
+            stored = new ArrayList<>();
+            for (Future<AvatarStorage.Stored> future : futures) {
+                stored.add(future.get());
+            }
+        }
+        storage.close();
+
+        SegmentFileAvatarStorage reopened = new SegmentFileAvatarStorage(dir.toString(), 200_000);
+        for (int i = 0; i < contents.size(); i++) {
+            try (InputStream is = reopened.open(stored.get(i).location())) {
+                assertThat(is.readAllBytes()).isEqualTo(contents.get(i));
+            }
+        }
+        reopened.close();
+    }
+
+    @Test
+    void remembersWhenContentWasLastStoredAcrossRestarts() throws IOException {
+        SegmentFileAvatarStorage storage = new SegmentFileAvatarStorage(dir.toString(), 1024);
+        AvatarStorage.Stored stored = storage.store(content("errol"), "png");
+        Instant reused = Instant.now();
+        storage.store(content("errol"), "png");
+        storage.close();
+
+        SegmentFileAvatarStorage reopened = new SegmentFileAvatarStorage(dir.toString(), 1024);
+        assertThat(reopened.quarantine(stored.location())).isAfterOrEqualTo(reused.truncatedTo(ChronoUnit.MILLIS));
+        reopened.close();
+    }
+
+    private static byte[] bytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static InputStream content(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(AvatarStorage storage, String location) throws IOException {
+        try (InputStream is = storage.open(location)) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
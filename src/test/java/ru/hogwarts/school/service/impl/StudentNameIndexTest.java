@@ -0,0 +1,68 @@
+package ru.hogwarts.school.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StudentNameIndexTest {
+    private final StudentNameIndex index = new StudentNameIndex(null, null);
+
+    @Test
+    void ranksExactThenPrefixThenWordPrefixThenSubstring() {
+        index.put(1L, "Ron Weasley");
+        index.put(2L, "Ronald");
+        index.put(3L, "Harry Potter");
+        index.put(4L, "Aaron");
+        index.put(5L, "ron");
+        index.put(6L, "Lavender Ronson");
+
+        assertThat(index.search("ron", 10)).containsExactly(5L, 2L, 1L, 6L, 4L);
+        assertThat(index.search("RON", 2)).containsExactly(5L, 2L);
+        assertThat(index.search("ro", 10)).containsExactly(5L, 2L, 1L, 6L);
+        assertThat(index.search("p", 10)).containsExactly(3L);
+        assertThat(index.search("o", 10)).isEmpty();
+    }
+
+    @Test
+    void followsUpdatesAndRemovals() {
+        index.put(1L, "Neville");
+        assertThat(index.search("nev", 10)).containsExactly(1L);
+
+        index.put(1L, "Luna");
+        assertThat(index.search("nev", 10)).isEmpty();
+        assertThat(index.search("lun", 10)).containsExactly(1L);
+
+        index.remove(1L);
+        assertThat(index.search("lun", 10)).isEmpty();
+    }
+
+    @Test
+    void appliesChangesOnlyAfterCommit() {
+        index.put(1L, "Neville");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.put(1L, "Luna");
+            index.put(2L, "Ginny");
+            assertThat(index.search("lun", 10)).isEmpty();
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(index.search("nev", 10)).containsExactly(1L);
+        assertThat(index.search("gin", 10)).isEmpty();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.remove(1L);
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(index.search("nev", 10)).isEmpty();
+    }
+}